@@ -0,0 +1,113 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Inputs for the JMH benchmarks.
+ *
+ * <p>The fixtures are the example jars built from src/test/examples by the buildExampleJars task.
+ * The jmh task depends on that task and runs from the project root.
+ */
+public class BenchmarkFixtures {
+
+  public static Path exampleJar(String name) {
+    return Paths.get("build/test/examples", name + ".jar");
+  }
+
+  public static List<byte[]> readClassFiles(Path jar) throws IOException {
+    List<byte[]> classFiles = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(jar.toFile(), StandardCharsets.UTF_8)) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          try (InputStream stream = zipFile.getInputStream(entry)) {
+            classFiles.add(ByteStreams.toByteArray(stream));
+          }
+        }
+      }
+    }
+    return classFiles;
+  }
+
+  public static byte[] compileToDex(Path jar) throws CompilationFailedException {
+    byte[][] result = new byte[1][];
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(jar)
+            .setMode(CompilationMode.DEBUG)
+            .setDisableDesugaring(true)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    assert fileIndex == 0;
+                    result[0] = data.copyByteData();
+                  }
+                })
+            .build());
+    return result[0];
+  }
+
+  /** Options for compiling to dex where the output is discarded. */
+  public static InternalOptions createDexOptions() {
+    InternalOptions options = new InternalOptions();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    return options;
+  }
+
+  public static DexApplication readApplication(AndroidApp app, InternalOptions options)
+      throws IOException, ExecutionException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      return new ApplicationReader(app, options, new Timing("Benchmark")).read(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public static DexApplication readClassFileApplication(Path jar, InternalOptions options)
+      throws IOException, ExecutionException {
+    return readApplication(AndroidApp.builder().addProgramFiles(jar).build(), options);
+  }
+
+  public static DexApplication readDexApplication(byte[] dex, InternalOptions options)
+      throws IOException, ExecutionException {
+    return readApplication(
+        AndroidApp.builder().addDexProgramData(dex, Origin.unknown()).build(), options);
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writing of an application to dex, which covers distribution into virtual files, the index
+ * mapping and the FileWriter output.
+ *
+ * <p>Writing modifies the application, so a fresh application is read before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplicationWriterBenchmark {
+
+  @Param({"arithmetic", "regalloc", "controlflow"})
+  public String example;
+
+  private byte[] dex;
+  private ExecutorService executor;
+  private InternalOptions options;
+  private DexApplication application;
+
+  @Setup
+  public void setup() throws Exception {
+    dex = BenchmarkFixtures.compileToDex(BenchmarkFixtures.exampleJar(example));
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Setup(Level.Invocation)
+  public void readApplication() throws Exception {
+    options = BenchmarkFixtures.createDexOptions();
+    application = BenchmarkFixtures.readDexApplication(dex, options);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public void write(Blackhole blackhole) throws Exception {
+    new ApplicationWriter(
+            application,
+            null,
+            options,
+            null,
+            GraphLense.getIdentityLense(),
+            NamingLens.getIdentityLens(),
+            null,
+            new DexIndexedConsumer.ForwardingConsumer(null) {
+              @Override
+              public void accept(
+                  int fileIndex,
+                  ByteDataView data,
+                  Set<String> descriptors,
+                  DiagnosticsHandler handler) {
+                blackhole.consume(data.getBuffer());
+              }
+            })
+        .write(executor);
+  }
+}
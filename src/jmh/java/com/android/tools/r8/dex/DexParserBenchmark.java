@@ -0,0 +1,54 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing of a dex file into classes, including all code items. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DexParserBenchmark {
+
+  @Param({"arithmetic", "regalloc", "controlflow"})
+  public String example;
+
+  private byte[] dex;
+  private InternalOptions options;
+
+  @Setup
+  public void setup() throws Exception {
+    dex = BenchmarkFixtures.compileToDex(BenchmarkFixtures.exampleJar(example));
+    // The item factory is shared by all invocations, such that interning mostly hits existing
+    // items as it does when reading many dex files in one compilation.
+    options = new InternalOptions();
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    DexParser parser =
+        new DexParser(new DexReader(Origin.unknown(), dex), ClassKind.PROGRAM, options);
+    parser.populateIndexTables();
+    parser.addClassDefsTo(blackhole::consume);
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Interning of strings, types, protos and methods in a DexItemFactory that is shared by several
+ * threads, as when classes are read in parallel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DexItemFactoryBenchmark {
+
+  private static final int NUMBER_OF_CLASSES = 1000;
+
+  private String[] descriptors;
+  private String[] methodNames;
+  private DexItemFactory factory;
+
+  @Setup
+  public void setup() {
+    descriptors = new String[NUMBER_OF_CLASSES];
+    methodNames = new String[NUMBER_OF_CLASSES];
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      descriptors[i] = "Lcom/example/package" + (i % 10) + "/Class" + i + ";";
+      methodNames[i] = "method" + i;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void createFactory() {
+    // Start each iteration from an empty factory, such that the first lookups of each iteration
+    // create the items and the remaining lookups find them.
+    factory = new DexItemFactory();
+  }
+
+  @Benchmark
+  public void intern(Blackhole blackhole) {
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      DexType type = factory.createType(descriptors[i]);
+      DexProto proto = factory.createProto(type, factory.intType, factory.stringType);
+      blackhole.consume(factory.createMethod(type, proto, methodNames[i]));
+    }
+  }
+}
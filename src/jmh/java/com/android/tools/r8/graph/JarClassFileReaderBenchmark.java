@@ -0,0 +1,65 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing of class files, including the LazyCfCode of every method. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarClassFileReaderBenchmark {
+
+  @Param({"arithmetic", "regalloc", "controlflow"})
+  public String example;
+
+  private List<byte[]> classFiles;
+  private JarApplicationReader application;
+
+  @Setup
+  public void setup() throws IOException {
+    classFiles = BenchmarkFixtures.readClassFiles(BenchmarkFixtures.exampleJar(example));
+    application = new JarApplicationReader(new InternalOptions());
+  }
+
+  @Benchmark
+  public void read(Blackhole blackhole) throws IOException {
+    JarClassFileReader reader =
+        new JarClassFileReader(
+            application,
+            clazz -> {
+              clazz.forEachMethod(
+                  method -> {
+                    if (method.hasCode()) {
+                      blackhole.consume(method.getCode().asCfCode());
+                    }
+                  });
+              blackhole.consume(clazz);
+            });
+    for (byte[] classFile : classFiles) {
+      reader.read(Origin.unknown(), ClassKind.PROGRAM, new ByteArrayInputStream(classFile));
+    }
+  }
+}
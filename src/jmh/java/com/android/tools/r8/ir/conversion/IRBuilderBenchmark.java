@@ -0,0 +1,62 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Construction of IR for all methods of an application read from class files. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IRBuilderBenchmark {
+
+  @Param({"arithmetic", "regalloc", "controlflow"})
+  public String example;
+
+  private AppView<AppInfo> appView;
+  private List<DexEncodedMethod> methods;
+
+  @Setup
+  public void setup() throws Exception {
+    InternalOptions options = BenchmarkFixtures.createDexOptions();
+    DexApplication application =
+        BenchmarkFixtures.readClassFileApplication(
+            BenchmarkFixtures.exampleJar(example), options);
+    appView = AppView.createForD8(new AppInfo(application), options);
+    methods = new ArrayList<>();
+    application.classes().forEach(clazz -> clazz.forEachMethod(methods::add));
+    methods.removeIf(method -> !method.hasCode());
+  }
+
+  @Benchmark
+  public void buildIR(Blackhole blackhole) {
+    for (DexEncodedMethod method : methods) {
+      blackhole.consume(method.buildIR(appView, Origin.unknown()));
+    }
+  }
+}
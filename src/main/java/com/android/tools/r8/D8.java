@@ -33,6 +33,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -145,14 +146,21 @@ public final class D8 {
         });
   }
 
-  private static void run(AndroidApp inputApp, InternalOptions options, ExecutorService executor)
+  private static void run(
+      AndroidApp inputApp, InternalOptions options, ExecutorService executorService)
       throws IOException {
-    Timing timing = new Timing("D8");
+    Timing timing = Timing.create("D8", options);
+    ExecutorService executor = timing.trackThreadResources(executorService);
     try {
       // Disable global optimizations.
       options.disableGlobalOptimizations();
 
       DexApplication app = new ApplicationReader(inputApp, options, timing).read(executor);
+      if (options.enableDesugaring && options.enableSupertypePrefetching) {
+        timing.begin("Prefetch supertypes");
+        app.prefetchSupertypes(executor);
+        timing.end();
+      }
       PrefixRewritingMapper rewritePrefix =
           options.desugaredLibraryConfiguration.createPrefixRewritingMapper(options.itemFactory);
       AppInfo appInfo = new AppInfo(app, inputApp.getBucketId());
@@ -230,6 +238,9 @@ public final class D8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.printTimesJsonFile != null) {
+        timing.reportAsJson(Paths.get(options.printTimesJsonFile));
+      }
     }
   }
 
@@ -24,6 +24,7 @@ import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
@@ -102,8 +103,10 @@ public class L8 {
   }
 
   private static void desugar(
-      AndroidApp inputApp, InternalOptions options, ExecutorService executor) throws IOException {
-    Timing timing = new Timing("L8 desugaring");
+      AndroidApp inputApp, InternalOptions options, ExecutorService executorService)
+      throws IOException {
+    Timing timing = Timing.create("L8 desugaring", options);
+    ExecutorService executor = timing.trackThreadResources(executorService);
     try {
       // Disable global optimizations.
       options.disableGlobalOptimizations();
@@ -146,6 +149,9 @@ public class L8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.printTimesJsonFile != null) {
+        timing.reportAsJson(Paths.get(options.printTimesJsonFile));
+      }
     }
   }
 }
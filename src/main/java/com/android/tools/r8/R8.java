@@ -96,6 +96,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -147,7 +148,7 @@ public class R8 {
     if (options.printMemory) {
       System.gc();
     }
-    this.timing = new Timing("R8", options.printMemory);
+    this.timing = Timing.create("R8", options);
     options.itemFactory.resetSortedIndices();
   }
 
@@ -243,8 +244,9 @@ public class R8 {
     new R8(options).run(app, executor);
   }
 
-  private void run(AndroidApp inputApp, ExecutorService executorService) throws IOException {
+  private void run(AndroidApp inputApp, ExecutorService executor) throws IOException {
     assert options.programConsumer != null;
+    ExecutorService executorService = timing.trackThreadResources(executor);
     if (options.quiet) {
       System.setOut(new PrintStream(ByteStreams.nullOutputStream()));
     }
@@ -261,7 +263,7 @@ public class R8 {
       inputApp.closeInternalArchiveProviders();
 
       AppView<AppInfoWithSubtyping> appView =
-          AppView.createForR8(new AppInfoWithSubtyping(application), options);
+          AppView.createForR8(new AppInfoWithSubtyping(application, executorService), options);
       appView.setAppServices(AppServices.builder(appView).build());
 
       List<ProguardConfigurationRule> synthesizedProguardRules = new ArrayList<>();
@@ -578,7 +580,7 @@ public class R8 {
       Set<DexType> prunedTypes = appView.withLiveness().appInfo().getPrunedTypes();
 
       if (!options.mainDexKeepRules.isEmpty()) {
-        appView.setAppInfo(new AppInfoWithSubtyping(application));
+        appView.setAppInfo(new AppInfoWithSubtyping(application, executorService));
         // No need to build a new main dex root set
         assert mainDexRootSet != null;
         GraphConsumer mainDexKeptGraphConsumer = options.mainDexKeptGraphConsumer;
@@ -622,7 +624,7 @@ public class R8 {
             executorService);
       }
 
-      appView.setAppInfo(new AppInfoWithSubtyping(application));
+      appView.setAppInfo(new AppInfoWithSubtyping(application, executorService));
 
       if (options.isShrinking()
           || options.isMinifying()
@@ -737,17 +739,19 @@ public class R8 {
         timing.begin("apply-mapping");
         namingLens =
             new ProguardMapMinifier(appView.withLiveness(), seedMapper, desugaredCallSites)
-                .run(timing);
+                .run(executorService, timing);
         timing.end();
       } else if (options.isMinifying()) {
         timing.begin("Minification");
-        namingLens = new Minifier(appView.withLiveness(), desugaredCallSites).run(timing);
+        namingLens =
+            new Minifier(appView.withLiveness(), desugaredCallSites).run(executorService, timing);
         timing.end();
       } else {
         // Rewrite signature annotations for applications that are not minified.
         if (appView.appInfo().hasLiveness()) {
           // TODO(b/124726014): Rewrite signature annotations in lens rewriting instead of here?
-          new GenericSignatureRewriter(appView.withLiveness()).run(appView.appInfo().classes());
+          new GenericSignatureRewriter(appView.withLiveness())
+              .run(appView.appInfo().classesWithDeterministicOrder(), executorService);
         }
         namingLens = NamingLens.getIdentityLens();
       }
@@ -758,7 +762,8 @@ public class R8 {
       // When line number optimization is turned off the identity mapping for line numbers is
       // used. We still run the line number optimizer to collect line numbers and inline frame
       // information for the mapping file.
-      ClassNameMapper classNameMapper = LineNumberOptimizer.run(appView, application, namingLens);
+      ClassNameMapper classNameMapper =
+          LineNumberOptimizer.run(appView, application, namingLens, executorService);
       timing.end();
       proguardMapSupplier = ProguardMapSupplier.fromClassNameMapper(classNameMapper, options);
 
@@ -824,6 +829,9 @@ public class R8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.printTimesJsonFile != null) {
+        timing.reportAsJson(Paths.get(options.printTimesJsonFile));
+      }
     }
   }
 
@@ -10,8 +10,10 @@ import com.android.tools.r8.D8;
 import com.android.tools.r8.D8Command;
 import com.android.tools.r8.DexIndexedConsumer;
 import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.utils.PooledByteBufferProvider;
 import com.android.tools.r8.utils.ThreadUtils;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -19,6 +21,9 @@ import java.util.concurrent.ExecutorService;
 public class IncrementalDexingBenchmark {
   private static final int ITERATIONS = 1000;
 
+  // Output buffers are reused across compilations, as in a long-running dexing process.
+  private static final PooledByteBufferProvider BYTE_BUFFERS = new PooledByteBufferProvider();
+
   public static void compile(ExecutorService executor)
       throws IOException, CompilationFailedException {
     D8.run(
@@ -28,6 +33,16 @@ public class IncrementalDexingBenchmark {
             .setDisableDesugaring(true)
             .setProgramConsumer(
                 new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public ByteBuffer acquireByteBuffer(int capacity) {
+                    return BYTE_BUFFERS.acquireByteBuffer(capacity);
+                  }
+
+                  @Override
+                  public void releaseByteBuffer(ByteBuffer buffer) {
+                    BYTE_BUFFERS.releaseByteBuffer(buffer);
+                  }
+
                   @Override
                   public void accept(
                       int fileIndex,
@@ -60,6 +60,9 @@ public class CompatDexBuilder {
   private String output = null;
   private int numberOfThreads = 8;
   private boolean noLocals = false;
+  private String dexCacheDirectory = null;
+  private long dexCacheMaxSizeInBytes = 1L << 30;
+  private DexCache dexCache = null;
 
   public static void main(String[] args)
       throws IOException, InterruptedException, ExecutionException {
@@ -90,6 +93,14 @@ public class CompatDexBuilder {
         numberOfThreads = Integer.parseInt(flag.substring("--num-threads=".length()));
         continue;
       }
+      if (flag.startsWith("--dex-cache-dir=")) {
+        dexCacheDirectory = flag.substring("--dex-cache-dir=".length());
+        continue;
+      }
+      if (flag.startsWith("--dex-cache-max-size=")) {
+        dexCacheMaxSizeInBytes = Long.parseLong(flag.substring("--dex-cache-max-size=".length()));
+        continue;
+      }
       switch (flag) {
         case "--input_jar":
           input = flags.get(++i);
@@ -124,6 +135,10 @@ public class CompatDexBuilder {
       System.exit(1);
     }
 
+    if (dexCacheDirectory != null) {
+      dexCache = new DexCache(Paths.get(dexCacheDirectory), dexCacheMaxSizeInBytes);
+    }
+
     ExecutorService executor = ThreadUtils.getExecutorService(numberOfThreads);
     try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(Paths.get(output)))) {
 
@@ -142,40 +157,61 @@ public class CompatDexBuilder {
           }
         }
 
-        List<Future<DexConsumer>> futures = new ArrayList<>(toDex.size());
+        List<Future<byte[]>> futures = new ArrayList<>(toDex.size());
         for (int i = 0; i < toDex.size(); i++) {
           ZipEntry classEntry = toDex.get(i);
           futures.add(executor.submit(() -> dexEntry(zipFile, classEntry, executor)));
         }
         for (int i = 0; i < futures.size(); i++) {
           ZipEntry entry = toDex.get(i);
-          DexConsumer consumer = futures.get(i).get();
-          addEntry(entry.getName() + ".dex", consumer.getBytes(), out);
+          addEntry(entry.getName() + ".dex", futures.get(i).get(), out);
         }
       }
     } finally {
       executor.shutdown();
     }
+
+    if (dexCache != null) {
+      dexCache.evictLeastRecentlyUsed();
+    }
   }
 
-  private DexConsumer dexEntry(ZipFile zipFile, ZipEntry classEntry, ExecutorService executor)
+  private byte[] dexEntry(ZipFile zipFile, ZipEntry classEntry, ExecutorService executor)
       throws IOException, CompilationFailedException {
+    CompilationMode mode = noLocals ? CompilationMode.RELEASE : CompilationMode.DEBUG;
+    int minApiLevel = AndroidApiLevel.H_MR2.getLevel();
+    byte[] classFileContent;
+    try (InputStream stream = zipFile.getInputStream(classEntry)) {
+      classFileContent = ByteStreams.toByteArray(stream);
+    }
+
+    String cacheKey = null;
+    if (dexCache != null) {
+      cacheKey = dexCache.computeKey(classFileContent, mode, minApiLevel);
+      byte[] cached = dexCache.lookup(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
     DexConsumer consumer = new DexConsumer();
     D8Command.Builder builder = D8Command.builder();
     CompatDxHelper.ignoreDexInArchive(builder);
     builder
         .setProgramConsumer(consumer)
-        .setMode(noLocals ? CompilationMode.RELEASE : CompilationMode.DEBUG)
-        .setMinApiLevel(AndroidApiLevel.H_MR2.getLevel())
-        .setDisableDesugaring(true);
-    try (InputStream stream = zipFile.getInputStream(classEntry)) {
-      builder.addClassProgramData(
-          ByteStreams.toByteArray(stream),
-          new ArchiveEntryOrigin(
-              classEntry.getName(), new PathOrigin(Paths.get(zipFile.getName()))));
-    }
+        .setMode(mode)
+        .setMinApiLevel(minApiLevel)
+        .setDisableDesugaring(true)
+        .addClassProgramData(
+            classFileContent,
+            new ArchiveEntryOrigin(
+                classEntry.getName(), new PathOrigin(Paths.get(zipFile.getName()))));
     D8.run(builder.build(), executor);
-    return consumer;
+
+    if (dexCache != null) {
+      dexCache.store(cacheKey, consumer.getBytes());
+    }
+    return consumer.getBytes();
   }
 
   private static void addEntry(String name, InputStream stream, ZipOutputStream out)
@@ -0,0 +1,188 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.compatdexbuilder;
+
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.Version;
+import com.android.tools.r8.utils.VersionProperties;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of the dex output for single class files.
+ *
+ * <p>Entries are keyed by a hash of the class file content, the identity of the compiler and the
+ * options that affect the output. Each entry is stored as a separate file in the cache directory,
+ * so the cache can be shared by concurrent builder processes. The last modified time of an entry
+ * is updated on every hit, and {@link #evictLeastRecentlyUsed()} removes the entries that were
+ * used least recently until the total size of the cache is below the size limit.
+ */
+class DexCache {
+
+  private static final String ENTRY_SUFFIX = ".dex";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+
+  // Temporary files older than this are left behind by a process that died while storing an entry.
+  // Younger ones may still be written by a concurrent process.
+  static final long STALE_TEMPORARY_FILE_AGE_MILLIS = 60 * 60 * 1000;
+
+  private static String compilerIdentity = null;
+
+  private final Path directory;
+  private final long maxSizeInBytes;
+  private final String compiler;
+
+  DexCache(Path directory, long maxSizeInBytes) throws IOException {
+    this.directory = directory;
+    this.maxSizeInBytes = maxSizeInBytes;
+    this.compiler = getCompilerIdentity();
+    Files.createDirectories(directory);
+    deleteStaleTemporaryFiles();
+  }
+
+  private void deleteStaleTemporaryFiles() throws IOException {
+    long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_FILE_AGE_MILLIS;
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, "*" + TEMPORARY_SUFFIX)) {
+      for (Path temporary : stream) {
+        try {
+          if (Files.getLastModifiedTime(temporary).toMillis() < staleBefore) {
+            Files.deleteIfExists(temporary);
+          }
+        } catch (NoSuchFileException e) {
+          // Moved into place or deleted by another process.
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a string that identifies the compiler. A release is identified by its git revision. The
+   * version string of a development build does not change when the compiler is changed, so it is
+   * identified by a hash of the jar or the class directory that the compiler is loaded from.
+   */
+  static synchronized String getCompilerIdentity() throws IOException {
+    if (compilerIdentity == null) {
+      if (Version.isDev()) {
+        compilerIdentity = hashCompilerLocation();
+      } else {
+        compilerIdentity = Version.LABEL + " " + VersionProperties.INSTANCE.getSha();
+      }
+    }
+    return compilerIdentity;
+  }
+
+  private static String hashCompilerLocation() throws IOException {
+    CodeSource codeSource = DexCache.class.getProtectionDomain().getCodeSource();
+    if (codeSource == null) {
+      throw new IOException("Unable to locate the compiler for the dex cache");
+    }
+    Path location;
+    try {
+      location = Paths.get(codeSource.getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException("Unable to locate the compiler for the dex cache", e);
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    if (Files.isDirectory(location)) {
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(location)) {
+        files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      for (Path file : files) {
+        hasher.putString(location.relativize(file).toString(), StandardCharsets.UTF_8);
+        hasher.putBytes(Files.readAllBytes(file));
+      }
+    } else {
+      hasher.putBytes(Files.readAllBytes(location));
+    }
+    return hasher.hash().toString();
+  }
+
+  String computeKey(byte[] classFileContent, CompilationMode mode, int minApiLevel) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(compiler, StandardCharsets.UTF_8);
+    hasher.putString(mode.name(), StandardCharsets.UTF_8);
+    hasher.putInt(minApiLevel);
+    hasher.putBytes(classFileContent);
+    return hasher.hash().toString();
+  }
+
+  /** Returns the cached dex output for the given key, or null if there is no such entry. */
+  byte[] lookup(String key) throws IOException {
+    Path entry = directory.resolve(key + ENTRY_SUFFIX);
+    try {
+      byte[] content = Files.readAllBytes(entry);
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return content;
+    } catch (NoSuchFileException e) {
+      // Not in the cache, or evicted by another process.
+      return null;
+    }
+  }
+
+  void store(String key, byte[] content) throws IOException {
+    // Write to a temporary file and move it into place, such that other processes using the same
+    // cache directory never observe a partially written entry.
+    Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+    try {
+      Files.write(temporary, content);
+      Files.move(
+          temporary,
+          directory.resolve(key + ENTRY_SUFFIX),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  void evictLeastRecentlyUsed() throws IOException {
+    Map<Path, BasicFileAttributes> entries = new HashMap<>();
+    long totalSize = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+      for (Path entry : stream) {
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+          entries.put(entry, attributes);
+          totalSize += attributes.size();
+        } catch (NoSuchFileException e) {
+          // Evicted by another process.
+        }
+      }
+    }
+    if (totalSize <= maxSizeInBytes) {
+      return;
+    }
+    List<Path> leastRecentlyUsedFirst = new ArrayList<>(entries.keySet());
+    leastRecentlyUsedFirst.sort(
+        Comparator.comparing(entry -> entries.get(entry).lastModifiedTime()));
+    for (Path entry : leastRecentlyUsedFirst) {
+      if (totalSize <= maxSizeInBytes) {
+        break;
+      }
+      Files.deleteIfExists(entry);
+      totalSize -= entries.get(entry).size();
+    }
+  }
+}
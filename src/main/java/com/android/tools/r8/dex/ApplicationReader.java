@@ -263,7 +263,7 @@ public class ApplicationReader {
         List<DexParser> dexParsers = new ArrayList<>(dexSources.size());
         int computedMinApiLevel = options.minApiLevel;
         for (ProgramResource input : dexSources) {
-          DexReader dexReader = new DexReader(input);
+          DexReader dexReader = new DexReader(input, options.enableMemoryMappedDexInput);
           if (options.passthroughDexCode) {
             computedMinApiLevel = validateOrComputeMinApiLevel(computedMinApiLevel, dexReader);
           }
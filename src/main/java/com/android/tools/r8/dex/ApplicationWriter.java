@@ -50,6 +50,7 @@ import com.google.common.collect.ObjectArrays;
 import it.unimi.dsi.fastutil.objects.Reference2LongMap;
 import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -172,7 +173,7 @@ public class ApplicationWriter {
     this.programConsumer = consumer;
   }
 
-  private Iterable<VirtualFile> distribute(ExecutorService executorService)
+  private Collection<VirtualFile> distribute(ExecutorService executorService)
       throws ExecutionException, IOException {
     // Distribute classes into dex files.
     VirtualFile.Distributor distributor;
@@ -188,7 +189,7 @@ public class ApplicationWriter {
       distributor = new VirtualFile.FillFilesDistributor(this, options, executorService);
     }
 
-    Iterable<VirtualFile> result = distributor.run();
+    Collection<VirtualFile> result = distributor.run();
     return result;
   }
 
@@ -216,17 +217,17 @@ public class ApplicationWriter {
 
   public void write(ExecutorService executorService) throws IOException, ExecutionException {
     application.timing.begin("DexApplication.write");
-    ProguardMapSupplier.ProguardMapAndId proguardMapAndId = null;
+    ProguardMapSupplier.ProguardMapId proguardMapId = null;
     if (proguardMapSupplier != null && options.proguardMapConsumer != null) {
-      proguardMapAndId = proguardMapSupplier.getProguardMapAndId();
+      proguardMapId = proguardMapSupplier.getProguardMapId();
     }
 
     // If we do have a map then we're called from R8. In that case we have exactly one marker.
-    assert proguardMapAndId == null || (markers != null && markers.size() == 1);
+    assert proguardMapId == null || (markers != null && markers.size() == 1);
 
     if (markers != null && !markers.isEmpty()) {
-      if (proguardMapAndId != null) {
-        markers.get(0).setPgMapId(proguardMapAndId.id);
+      if (proguardMapId != null) {
+        markers.get(0).setPgMapId(proguardMapId.id);
       }
       markerStrings = new ArrayList<>(markers.size());
       for (Marker marker : markers) {
@@ -238,7 +239,9 @@ public class ApplicationWriter {
 
       // Generate the dex file contents.
       List<Future<Boolean>> dexDataFutures = new ArrayList<>();
-      Iterable<VirtualFile> virtualFiles = distribute(executorService);
+      // The files are dropped from this list as soon as they have been written, such that the
+      // indexed items of a file are not kept alive until all files have been written.
+      List<VirtualFile> virtualFiles = new ArrayList<>(distribute(executorService));
       if (options.encodeChecksums) {
         encodeChecksums(virtualFiles);
       }
@@ -250,10 +253,12 @@ public class ApplicationWriter {
       SortAnnotations sortAnnotations = new SortAnnotations();
       application.classes().forEach((clazz) -> clazz.addDependencies(sortAnnotations));
 
-      for (VirtualFile virtualFile : virtualFiles) {
+      for (int i = 0; i < virtualFiles.size(); i++) {
+        VirtualFile virtualFile = virtualFiles.get(i);
         if (virtualFile.isEmpty()) {
           continue;
         }
+        int index = i;
         dexDataFutures.add(
             executorService.submit(
                 () -> {
@@ -269,6 +274,7 @@ public class ApplicationWriter {
                     consumer = options.getDexIndexedConsumer();
                     byteBufferProvider = options.getDexIndexedConsumer();
                   }
+                  virtualFile.addDeferredClasses();
                   ObjectToOffsetMapping objectMapping = virtualFile.computeMapping(application);
                   MethodToCodeObjectMapping codeMapping =
                       rewriteCodeWithJumboStrings(
@@ -296,6 +302,7 @@ public class ApplicationWriter {
                   // Release use of the backing buffer now that accept has returned.
                   data.invalidate();
                   byteBufferProvider.releaseByteBuffer(result.buffer.asByteBuffer());
+                  virtualFiles.set(index, null);
                   return true;
                 }));
       }
@@ -310,7 +317,8 @@ public class ApplicationWriter {
           graphLense,
           namingLens,
           options,
-          proguardMapAndId == null ? null : proguardMapAndId.map);
+          proguardMapSupplier,
+          proguardMapId);
     } finally {
       application.timing.end();
     }
@@ -322,18 +330,18 @@ public class ApplicationWriter {
       GraphLense graphLense,
       NamingLens namingLens,
       InternalOptions options,
-      String proguardMapContent) {
+      ProguardMapSupplier proguardMapSupplier,
+      ProguardMapSupplier.ProguardMapId proguardMapId) {
     if (options.configurationConsumer != null) {
       ExceptionUtils.withConsumeResourceHandler(
           options.reporter, options.configurationConsumer,
           options.getProguardConfiguration().getParsedConfiguration());
       ExceptionUtils.withFinishedResourceHandler(options.reporter, options.configurationConsumer);
     }
-    if (proguardMapContent != null) {
-      assert validateProguardMapParses(proguardMapContent);
-      ExceptionUtils.withConsumeResourceHandler(
-          options.reporter, options.proguardMapConsumer, proguardMapContent);
-      ExceptionUtils.withFinishedResourceHandler(options.reporter, options.proguardMapConsumer);
+    if (proguardMapId != null) {
+      assert validateProguardMapParses(proguardMapSupplier, proguardMapId);
+      proguardMapSupplier.writeProguardMap(
+          proguardMapId, options.proguardMapConsumer, options.reporter);
     }
     if (options.mainDexListConsumer != null) {
       ExceptionUtils.withConsumeResourceHandler(
@@ -408,9 +416,12 @@ public class ApplicationWriter {
     }
   }
 
-  private static boolean validateProguardMapParses(String content) {
+  private static boolean validateProguardMapParses(
+      ProguardMapSupplier proguardMapSupplier, ProguardMapSupplier.ProguardMapId proguardMapId) {
     try {
-      ClassNameMapper.mapperFromString(content);
+      StringWriter content = new StringWriter();
+      proguardMapSupplier.writeProguardMap(proguardMapId, content);
+      ClassNameMapper.mapperFromString(content.toString());
     } catch (IOException e) {
       e.printStackTrace();
       return false;
@@ -5,11 +5,20 @@
 package com.android.tools.r8.dex;
 
 import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.FileResource;
 import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.LebUtils;
 import com.android.tools.r8.utils.StreamUtils;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Base class for reading binary content.
@@ -19,13 +28,64 @@ public abstract class BinaryReader {
   protected final CompatByteBuffer buffer;
 
   protected BinaryReader(ProgramResource resource) throws ResourceException, IOException {
-    this(resource.getOrigin(), StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
+    this(resource, false);
+  }
+
+  /**
+   * Creates a reader for the given resource.
+   *
+   * <p>If memory mapping is allowed and the resource is a file, the file is mapped into memory and
+   * read in place instead of being copied to the heap. The file must then not be truncated while it
+   * is being read, see {@link #inputTruncatedError}.
+   */
+  protected BinaryReader(ProgramResource resource, boolean allowMemoryMapping)
+      throws ResourceException, IOException {
+    this(resource.getOrigin(), readContent(resource, allowMemoryMapping));
   }
 
   protected BinaryReader(Origin origin, byte[] bytes) {
+    this(origin, ByteBuffer.wrap(bytes));
+  }
+
+  private BinaryReader(Origin origin, ByteBuffer content) {
     assert origin != null;
     this.origin = origin;
-    buffer = CompatByteBuffer.wrap(bytes);
+    buffer = new CompatByteBuffer(content);
+  }
+
+  /**
+   * Returns the error to throw for an {@link InternalError} raised while reading the content.
+   *
+   * <p>If the file of a memory mapped reader is truncated while it is being read, the JVM raises an
+   * InternalError on the next access past the new end of the file. That is reported as a
+   * compilation error for the file. Any other InternalError is rethrown unchanged.
+   */
+  CompilationError inputTruncatedError(InternalError e) {
+    if (!(buffer.asByteBuffer() instanceof MappedByteBuffer)) {
+      throw e;
+    }
+    return new CompilationError(
+        "Input file was truncated while it was being read. "
+            + "Input files must not be modified during the compilation.",
+        e,
+        origin);
+  }
+
+  private static ByteBuffer readContent(ProgramResource resource, boolean allowMemoryMapping)
+      throws ResourceException, IOException {
+    // The origin of a file resource is the path of the file.
+    if (allowMemoryMapping
+        && resource instanceof FileResource
+        && resource.getOrigin() instanceof PathOrigin) {
+      Path file = ((PathOrigin) resource.getOrigin()).getPath();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        // The mapping remains valid after the channel is closed.
+        return channel.map(MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException e) {
+        throw new ResourceException(resource.getOrigin(), e);
+      }
+    }
+    return ByteBuffer.wrap(StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
   }
 
   public Origin getOrigin() {
@@ -32,8 +32,16 @@ public class DexOutputBuffer {
   }
 
   public DexOutputBuffer(ByteBufferProvider byteBufferProvider) {
+    this(byteBufferProvider, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a buffer with the given initial size, which should be an estimate of the final size,
+   * such that the buffer does not have to grow while it is written.
+   */
+  public DexOutputBuffer(ByteBufferProvider byteBufferProvider, int initialSize) {
     this.byteBufferProvider = byteBufferProvider;
-    byteBuffer = allocateByteBuffer(DEFAULT_BUFFER_SIZE);
+    byteBuffer = allocateByteBuffer(initialSize);
   }
 
   private void ensureSpaceFor(int bytes) {
@@ -14,6 +14,7 @@ import com.android.tools.r8.code.InstructionFactory;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.ClassAccessFlags;
 import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.Descriptor;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationElement;
@@ -54,6 +55,7 @@ import com.android.tools.r8.graph.DexValue.DexValueString;
 import com.android.tools.r8.graph.EnclosingMethodAttribute;
 import com.android.tools.r8.graph.FieldAccessFlags;
 import com.android.tools.r8.graph.InnerClassAttribute;
+import com.android.tools.r8.graph.LazyDexCode;
 import com.android.tools.r8.graph.MethodAccessFlags;
 import com.android.tools.r8.graph.OffsetToObjectMapping;
 import com.android.tools.r8.graph.ParameterAnnotationsList;
@@ -117,7 +119,7 @@ public class DexParser {
   private OffsetToObjectMapping indexedItems = new OffsetToObjectMapping();
 
   // Mapping from offset to code item;
-  private Int2ObjectMap<DexCode> codes = new Int2ObjectOpenHashMap<>();
+  private Int2ObjectMap<Code> codes = new Int2ObjectOpenHashMap<>();
 
   // Mapping from offset to dex item;
   private Int2ObjectMap<Object> offsetMap = new Int2ObjectOpenHashMap<>();
@@ -131,8 +133,12 @@ public class DexParser {
     this.dexReader = dexReader;
     this.dexItemFactory = options.itemFactory;
     dexReader.setByteOrder();
-    dexSections = parseMap();
-    parseStringIDs();
+    try {
+      dexSections = parseMap();
+      parseStringIDs();
+    } catch (InternalError e) {
+      throw dexReader.inputTruncatedError(e);
+    }
     this.classKind = classKind;
     this.options = options;
   }
@@ -159,7 +165,7 @@ public class DexParser {
       int currentPos = dexReader.position();
       dexReader.position(offset);
       dexReader.align(4);
-      DexCode code = parseCodeItem();
+      Code code = parseCodeItem();
       codes.put(offset, code);  // Update the file local offset to code mapping.
       dexReader.position(currentPos);
     }
@@ -637,7 +643,7 @@ public class DexParser {
       methodIndex += dexReader.getUleb128();
       MethodAccessFlags accessFlags = MethodAccessFlags.fromDexAccessFlags(dexReader.getUleb128());
       int codeOff = dexReader.getUleb128();
-      DexCode code = null;
+      Code code = null;
       if (!skipCodes) {
         ensureCodesInited(codeOff);
         assert codeOff == 0 || codes.get(codeOff) != null;
@@ -664,6 +670,14 @@ public class DexParser {
   }
 
   void addClassDefsTo(Consumer<DexClass> classCollection) {
+    try {
+      readClassDefs(classCollection);
+    } catch (InternalError e) {
+      throw dexReader.inputTruncatedError(e);
+    }
+  }
+
+  private void readClassDefs(Consumer<DexClass> classCollection) {
     final DexSection dexSection = lookupSection(Constants.TYPE_CLASS_DEF_ITEM);
     final int length = dexSection.length;
     indexedItems.initializeClasses(length);
@@ -833,7 +847,7 @@ public class DexParser {
     return result;
   }
 
-  private DexCode parseCodeItem() {
+  private Code parseCodeItem() {
     int registerSize = dexReader.getUshort();
     int insSize = dexReader.getUshort();
     int outsSize = dexReader.getUshort();
@@ -896,6 +910,12 @@ public class DexParser {
     int saved = dexReader.position();
     DexDebugInfo debugInfo = debugInfoAt(debugInfoOff);
     dexReader.position(saved);
+    if (options.enableLazyDexCodeParsing) {
+      // The instructions are decoded on first use, which is never for code that is dead or only
+      // inspected through its header.
+      return new LazyDexCode(
+          registerSize, insSize, outsSize, code, tries, handlers, debugInfo, indexedItems);
+    }
     InstructionFactory factory = new InstructionFactory();
     Instruction[] instructions =
         factory.readSequenceFrom(ShortBuffer.wrap(code), 0, code.length, indexedItems);
@@ -903,15 +923,19 @@ public class DexParser {
   }
 
   void populateIndexTables() {
-    // Populate structures that are already sorted upon read.
-    populateStrings();  // Depends on nothing.
-    populateChecksums(); // Depends on Strings.
-    populateTypes();  // Depends on Strings.
-    populateFields();  // Depends on Types, and Strings.
-    populateProtos();  // Depends on Types and Strings.
-    populateMethods();  // Depends on Protos, Types, and Strings.
-    populateMethodHandles(); // Depends on Methods and Fields
-    populateCallSites(); // Depends on MethodHandles
+    try {
+      // Populate structures that are already sorted upon read.
+      populateStrings();  // Depends on nothing.
+      populateChecksums(); // Depends on Strings.
+      populateTypes();  // Depends on Strings.
+      populateFields();  // Depends on Types, and Strings.
+      populateProtos();  // Depends on Types and Strings.
+      populateMethods();  // Depends on Protos, Types, and Strings.
+      populateMethodHandles(); // Depends on Methods and Fields
+      populateCallSites(); // Depends on MethodHandles
+    } catch (InternalError e) {
+      throw dexReader.inputTruncatedError(e);
+    }
   }
 
   private void populateStrings() {
@@ -23,7 +23,12 @@ public class DexReader extends BinaryReader {
   private final DexVersion version;
 
   public DexReader(ProgramResource resource) throws ResourceException, IOException {
-    super(resource);
+    this(resource, false);
+  }
+
+  public DexReader(ProgramResource resource, boolean allowMemoryMapping)
+      throws ResourceException, IOException {
+    super(resource, allowMemoryMapping);
     version = parseMagic(buffer);
   }
 
@@ -91,7 +91,8 @@ public class FileWriter {
   private final DexApplication application;
   private final InternalOptions options;
   private final NamingLens namingLens;
-  private final DexOutputBuffer dest;
+  private final ByteBufferProvider provider;
+  private DexOutputBuffer dest;
   private final MixedSectionOffsets mixedSectionOffsets;
   private final CodeToKeep desugaredLibraryCodeToKeep;
 
@@ -107,7 +108,7 @@ public class FileWriter {
     this.application = application;
     this.options = options;
     this.namingLens = namingLens;
-    this.dest = new DexOutputBuffer(provider);
+    this.provider = provider;
     this.mixedSectionOffsets = new MixedSectionOffsets(options, codeMapping);
     this.desugaredLibraryCodeToKeep = CodeToKeep.createCodeToKeep(options, namingLens);
   }
@@ -168,9 +169,14 @@ public class FileWriter {
 
     // Sort the codes first, as their order might impact size due to alignment constraints.
     List<DexCode> codes = sortDexCodesByClassName();
+    int sizeOfCodeItems = sizeOfCodeItems(codes);
+
+    // Allocate the output buffer once the size of the file can be estimated.
+    assert dest == null;
+    dest = new DexOutputBuffer(provider, estimateFileSize(layout, sizeOfCodeItems));
 
     // Output the debug_info_items first, as they have no dependencies.
-    dest.moveTo(layout.getCodesOffset() + sizeOfCodeItems(codes));
+    dest.moveTo(layout.getCodesOffset() + sizeOfCodeItems);
     writeItems(mixedSectionOffsets.getDebugInfos(), layout::setDebugInfosOffset,
         this::writeDebugItem);
 
@@ -382,6 +388,40 @@ public class FileWriter {
     }
   }
 
+  /**
+   * Estimates the size of the file, such that the output buffer does not have to grow while the
+   * file is written. The sizes of the fixed sections, the code items and the string data are
+   * exact. The sizes of the remaining data sections are estimated from the number of items.
+   */
+  private int estimateFileSize(Layout layout, int sizeOfCodeItems) {
+    long size = layout.getCodesOffset() + sizeOfCodeItems;
+    for (DexString string : mixedSectionOffsets.getStringData()) {
+      size += LebUtils.sizeAsUleb128(string.size) + string.content.length;
+    }
+    for (DexTypeList list : mixedSectionOffsets.getTypeLists()) {
+      size += alignSize(4, Integer.BYTES + list.values.length * Short.BYTES);
+    }
+    for (DexProgramClass clazz : mixedSectionOffsets.getClassesWithData()) {
+      // Assume two bytes for each uleb128 encoded value.
+      size += 4 * 2;
+      size += (clazz.staticFields().size() + clazz.instanceFields().size()) * 2 * 2;
+      size += (clazz.directMethods().size() + clazz.virtualMethods().size()) * 3 * 2;
+    }
+    // Assume one byte of debug info for each byte of code.
+    size += sizeOfCodeItems;
+    // Assume sixteen bytes for each annotation, annotation set and encoded array.
+    size +=
+        (mixedSectionOffsets.getAnnotations().size()
+                + mixedSectionOffsets.getAnnotationSets().size()
+                + mixedSectionOffsets.getAnnotationSetRefLists().size()
+                + mixedSectionOffsets.getAnnotationDirectories().size()
+                + mixedSectionOffsets.getEncodedArrays().size())
+            * 16;
+    // Space for the map, which has at most one entry for each section.
+    size += Integer.BYTES + 20 * 12;
+    return (int) Math.min(size, Integer.MAX_VALUE - 8);
+  }
+
   private int sizeOfCodeItems(Iterable<DexCode> codes) {
     int size = 0;
     for (DexCode code : codes) {
@@ -26,10 +26,12 @@ import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +45,7 @@ import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -72,6 +75,10 @@ public class VirtualFile {
 
   private final DexProgramClass primaryClass;
 
+  // Classes that are added to the indexed items when the file is written, or null if all classes
+  // have been added. See FilePerInputClassDistributor.
+  private List<DexProgramClass> deferredClasses = null;
+
   VirtualFile(int id, NamingLens namingLens) {
     this(id, namingLens, null);
   }
@@ -88,6 +95,7 @@ public class VirtualFile {
   }
 
   public Set<String> getClassDescriptors() {
+    assert deferredClasses == null;
     Set<String> classDescriptors = new HashSet<>();
     for (DexProgramClass clazz : indexedItems.classes) {
       boolean added = classDescriptors.add(clazz.type.descriptor.toString());
@@ -158,6 +166,7 @@ public class VirtualFile {
 
   public ObjectToOffsetMapping computeMapping(DexApplication application) {
     assert transaction.isEmpty();
+    assert deferredClasses == null;
     return new ObjectToOffsetMapping(
         application,
         indexedItems.classes,
@@ -174,6 +183,31 @@ public class VirtualFile {
     transaction.addClassAndDependencies(clazz);
   }
 
+  private void addClass(ClassIndexedItems items) {
+    items.addTo(transaction);
+  }
+
+  private void deferClass(DexProgramClass clazz) {
+    if (deferredClasses == null) {
+      deferredClasses = new ArrayList<>();
+    }
+    deferredClasses.add(clazz);
+  }
+
+  /**
+   * Adds the classes that were deferred by the distributor, and their dependencies, to the indexed
+   * items of this file. Must be called before the file is written.
+   */
+  public void addDeferredClasses() {
+    if (deferredClasses != null) {
+      for (DexProgramClass clazz : deferredClasses) {
+        addClass(clazz);
+      }
+      commitTransaction();
+      deferredClasses = null;
+    }
+  }
+
   public boolean isFull(int maxEntries) {
     return (transaction.getNumberOfMethods() > maxEntries)
         || (transaction.getNumberOfFields() > maxEntries);
@@ -213,11 +247,11 @@ public class VirtualFile {
   }
 
   public boolean isEmpty() {
-    return indexedItems.classes.isEmpty();
+    return deferredClasses == null && indexedItems.classes.isEmpty();
   }
 
   public Collection<DexProgramClass> classes() {
-    return indexedItems.classes;
+    return deferredClasses == null ? indexedItems.classes : deferredClasses;
   }
 
   public abstract static class Distributor {
@@ -252,16 +286,15 @@ public class VirtualFile {
     public Collection<VirtualFile> run() {
       HashMap<DexProgramClass, VirtualFile> files = new HashMap<>();
       Collection<DexProgramClass> synthetics = new ArrayList<>();
-      // Assign dedicated virtual files for all program classes.
+      // Assign dedicated virtual files for all program classes. The indexed items of a file are
+      // only collected when the file is written, such that the items of all files are not kept
+      // alive at the same time.
       for (DexProgramClass clazz : application.classes()) {
         if (!combineSyntheticClassesWithPrimaryClass || clazz.getSynthesizedFrom().isEmpty()) {
           VirtualFile file = new VirtualFile(virtualFiles.size(), writer.namingLens, clazz);
           virtualFiles.add(file);
-          file.addClass(clazz);
+          file.deferClass(clazz);
           files.put(clazz, file);
-          // Commit this early, so that we do not keep the transaction state around longer than
-          // needed and clear the underlying sets.
-          file.commitTransaction();
         } else {
           synthetics.add(clazz);
         }
@@ -269,8 +302,7 @@ public class VirtualFile {
       for (DexProgramClass synthetic : synthetics) {
         for (DexProgramClass inputType : synthetic.getSynthesizedFrom()) {
           VirtualFile file = files.get(inputType);
-          file.addClass(synthetic);
-          file.commitTransaction();
+          file.deferClass(synthetic);
         }
       }
       return virtualFiles;
@@ -381,7 +413,7 @@ public class VirtualFile {
     }
 
     @Override
-    public Collection<VirtualFile> run() throws IOException {
+    public Collection<VirtualFile> run() throws ExecutionException, IOException {
       int totalClassNumber = classes.size();
       // First fill required classes into the main dex file.
       fillForMainDexList(classes);
@@ -410,9 +442,12 @@ public class VirtualFile {
         // Sort the remaining classes based on the original names.
         // This with make classes from the same package be adjacent.
         classes = sortClassesByPackage(classes, originalNames);
+        // With a single thread, collecting the indexed items of all classes up front is not
+        // faster, and keeps the items of all classes alive until they are placed.
         new PackageSplitPopulator(
             filesForDistribution, classes, originalNames, application.dexItemFactory,
-            fillStrategy, fileIndexOffset, writer.namingLens)
+            fillStrategy, fileIndexOffset, writer.namingLens, executorService,
+            options.numberOfThreads != 1)
             .call();
       }
       assert totalClassNumber == virtualFiles.stream().mapToInt(dex -> dex.classes().size()).sum();
@@ -659,6 +694,112 @@ public class VirtualFile {
     }
   }
 
+  /**
+   * The indexed items of a single class and its dependencies.
+   *
+   * <p>The items are collected ahead of the distribution, such that the items of all classes can be
+   * collected in parallel, and such that the code of a class is not traversed again each time the
+   * class is added to a file after a rollback.
+   */
+  private static class ClassIndexedItems implements IndexedItemCollection {
+
+    private final NamingLens namingLens;
+
+    private Set<DexItem> seen = Sets.newIdentityHashSet();
+
+    private final List<DexProgramClass> classes = new ArrayList<>(1);
+    private final List<DexField> fields = new ArrayList<>();
+    private final List<DexMethod> methods = new ArrayList<>();
+    private final List<DexType> types = new ArrayList<>();
+    private final List<DexProto> protos = new ArrayList<>();
+    private final List<DexString> strings = new ArrayList<>();
+    private final List<DexCallSite> callSites = new ArrayList<>(0);
+    private final List<DexMethodHandle> methodHandles = new ArrayList<>(0);
+
+    private ClassIndexedItems(DexProgramClass clazz, NamingLens namingLens) {
+      this.namingLens = namingLens;
+      clazz.collectIndexedItems(this);
+      seen = null;
+    }
+
+    private <T extends DexItem> boolean maybeInsert(T item, List<T> list) {
+      if (!seen.add(item)) {
+        return false;
+      }
+      list.add(item);
+      return true;
+    }
+
+    void addTo(IndexedItemTransaction transaction) {
+      // This adds the same items to the transaction as collecting the indexed items of the class
+      // directly from the transaction.
+      classes.forEach(transaction::addClass);
+      fields.forEach(transaction::addField);
+      methods.forEach(transaction::addMethod);
+      types.forEach(transaction::addType);
+      protos.forEach(transaction::addProto);
+      strings.forEach(transaction::addString);
+      callSites.forEach(transaction::addCallSite);
+      methodHandles.forEach(transaction::addMethodHandle);
+    }
+
+    @Override
+    public boolean addClass(DexProgramClass dexProgramClass) {
+      return maybeInsert(dexProgramClass, classes);
+    }
+
+    @Override
+    public boolean addField(DexField field) {
+      return maybeInsert(field, fields);
+    }
+
+    @Override
+    public boolean addMethod(DexMethod method) {
+      return maybeInsert(method, methods);
+    }
+
+    @Override
+    public boolean addString(DexString string) {
+      return maybeInsert(string, strings);
+    }
+
+    @Override
+    public boolean addProto(DexProto proto) {
+      return maybeInsert(proto, protos);
+    }
+
+    @Override
+    public boolean addType(DexType type) {
+      return maybeInsert(type, types);
+    }
+
+    @Override
+    public boolean addCallSite(DexCallSite callSite) {
+      return maybeInsert(callSite, callSites);
+    }
+
+    @Override
+    public boolean addMethodHandle(DexMethodHandle methodHandle) {
+      return maybeInsert(methodHandle, methodHandles);
+    }
+
+    @Override
+    public DexString getRenamedDescriptor(DexType type) {
+      return namingLens.lookupDescriptor(type);
+    }
+
+    @Override
+    public DexString getRenamedName(DexMethod method) {
+      assert namingLens.checkTargetCanBeTranslated(method);
+      return namingLens.lookupName(method);
+    }
+
+    @Override
+    public DexString getRenamedName(DexField field) {
+      return namingLens.lookupName(field);
+    }
+  }
+
   /**
    * Helper class to cycle through the set of virtual files.
    *
@@ -776,6 +917,12 @@ public class VirtualFile {
     private final DexItemFactory dexItemFactory;
     private final FillStrategy fillStrategy;
     private final VirtualFileCycler cycler;
+    private final NamingLens namingLens;
+    private final ExecutorService executorService;
+    private final boolean collectIndexedItemsInParallel;
+    // The indexed items of the classes that have not been committed to a file yet, or null if the
+    // items are collected when a class is added.
+    private ClassIndexedItems[] classIndexedItems = null;
 
     PackageSplitPopulator(
         List<VirtualFile> files,
@@ -784,12 +931,17 @@ public class VirtualFile {
         DexItemFactory dexItemFactory,
         FillStrategy fillStrategy,
         int fileIndexOffset,
-        NamingLens namingLens) {
+        NamingLens namingLens,
+        ExecutorService executorService,
+        boolean collectIndexedItemsInParallel) {
       this.classes = new ArrayList<>(classes);
       this.originalNames = originalNames;
       this.dexItemFactory = dexItemFactory;
       this.fillStrategy = fillStrategy;
       this.cycler = new VirtualFileCycler(files, namingLens, fileIndexOffset);
+      this.namingLens = namingLens;
+      this.executorService = executorService;
+      this.collectIndexedItemsInParallel = collectIndexedItemsInParallel;
     }
 
     static boolean coveredByPrefix(String originalName, String currentPrefix) {
@@ -808,8 +960,41 @@ public class VirtualFile {
       return originalNames != null ? originalNames.get(clazz) : clazz.toString();
     }
 
+    private ClassIndexedItems[] collectClassIndexedItems() throws ExecutionException {
+      ClassIndexedItems[] result = new ClassIndexedItems[classes.size()];
+      List<Future<?>> futures = new ArrayList<>(classes.size());
+      for (int i = 0; i < classes.size(); i++) {
+        int classIndex = i;
+        futures.add(
+            executorService.submit(
+                () -> {
+                  result[classIndex] = new ClassIndexedItems(classes.get(classIndex), namingLens);
+                }));
+      }
+      ThreadUtils.awaitFutures(futures);
+      return result;
+    }
+
+    private void addClass(VirtualFile file, int classIndex) {
+      if (classIndexedItems != null) {
+        file.addClass(classIndexedItems[classIndex]);
+      } else {
+        file.addClass(classes.get(classIndex));
+      }
+    }
+
+    // The classes in the range are not added again, so release their items.
+    private void releaseClassIndexedItems(int fromIndex, int toIndex) {
+      if (classIndexedItems != null) {
+        Arrays.fill(classIndexedItems, fromIndex, toIndex, null);
+      }
+    }
+
     @Override
-    public Map<String, Integer> call() throws IOException {
+    public Map<String, Integer> call() throws ExecutionException, IOException {
+      if (collectIndexedItemsInParallel) {
+        classIndexedItems = collectClassIndexedItems();
+      }
       int prefixLength = MINIMUM_PREFIX_LENGTH;
       int transactionStartIndex = 0;
       int fileStartIndex = 0;
@@ -823,6 +1008,7 @@ public class VirtualFile {
         if (!coveredByPrefix(originalName, currentPrefix)) {
           if (currentPrefix != null) {
             current.commitTransaction();
+            releaseClassIndexedItems(transactionStartIndex, classIndex);
             // Reset the cycler to again iterate over all files, starting with the current one.
             cycler.restart();
             assert !newPackageAssignments.containsKey(currentPrefix);
@@ -852,12 +1038,13 @@ public class VirtualFile {
         }
         if (currentPrefix != null) {
           assert clazz.superType != null || clazz.type == dexItemFactory.objectType;
-          current.addClass(clazz);
+          addClass(current, classIndex);
         } else {
           assert clazz.superType != null;
           // We don't have a package, add this to a list of classes that we will add last.
           assert current.transaction.classes.isEmpty();
           nonPackageClasses.add(clazz);
+          releaseClassIndexedItems(classIndex, classIndex + 1);
           continue;
         }
         if (current.isFilledEnough(fillStrategy) || current.isFull()) {
@@ -880,6 +1067,7 @@ public class VirtualFile {
                 for (int j = transactionStartIndex; j <= classIndex; j++) {
                   nonPackageClasses.add(classes.get(j));
                 }
+                releaseClassIndexedItems(transactionStartIndex, classIndex + 1);
                 transactionStartIndex = classIndex + 1;
               }
               // All files are filled up to the 20% mark.
@@ -894,6 +1082,7 @@ public class VirtualFile {
         }
       }
       current.commitTransaction();
+      releaseClassIndexedItems(transactionStartIndex, classes.size());
       assert !newPackageAssignments.containsKey(currentPrefix);
       if (currentPrefix != null) {
         newPackageAssignments.put(currentPrefix, current.id);
@@ -8,11 +8,13 @@ import com.android.tools.r8.ir.analysis.type.ClassTypeLatticeElement;
 import com.android.tools.r8.ir.desugar.LambdaDescriptor;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.utils.SetUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
@@ -20,8 +22,10 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -30,6 +34,9 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   private static final int ROOT_LEVEL = 0;
   private static final int UNKNOWN_LEVEL = -1;
   private static final int INTERFACE_LEVEL = -2;
+  // Number of classes for which the supertypes are walked by a single task when the subtype map
+  // is populated in parallel.
+  private static final int CLASSES_PER_TASK = 1024;
   // Since most Java types has no sub-types, we can just share an empty immutable set until we need
   // to add to it.
   private static final Set<DexType> NO_DIRECT_SUBTYPE = ImmutableSet.of();
@@ -42,8 +49,13 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     /**
      * Set of direct subtypes. This set has to remain sorted to ensure determinism. The actual
      * sorting is not important but {@link DexType#slowCompareTo(DexType)} works well.
+     *
+     * <p>The set is an immutable snapshot, such that it can be read without locking. Subtypes that
+     * are added after the hierarchy has been built, e.g., for synthesized lambda classes, replace
+     * the snapshot by a copy that has the new subtype inserted, see {@link
+     * #addToDirectSubtypes(DexType)}.
      */
-    Set<DexType> directSubtypes = NO_DIRECT_SUBTYPE;
+    private volatile Set<DexType> directSubtypes = NO_DIRECT_SUBTYPE;
 
     // Caching what interfaces this type is implementing. This includes super-interface hierarchy.
     Set<DexType> implementedInterfaces = null;
@@ -57,10 +69,28 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
       return "TypeInfo{" + type + ", level:" + hierarchyLevel + "}";
     }
 
-    private void ensureDirectSubTypeSet() {
-      if (directSubtypes == NO_DIRECT_SUBTYPE) {
-        directSubtypes = new TreeSet<>(DexType::slowCompareTo);
+    private void setDirectSubtypes(List<DexType> subtypes) {
+      assert directSubtypes.isEmpty();
+      subtypes.sort(DexType::slowCompareTo);
+      directSubtypes = ImmutableSet.copyOf(subtypes);
+    }
+
+    Set<DexType> getDirectSubtypes() {
+      return directSubtypes;
+    }
+
+    // Must be called while holding the lock of this.
+    private void addToDirectSubtypes(DexType subtype) {
+      Set<DexType> current = directSubtypes;
+      if (current.contains(subtype)) {
+        return;
       }
+      List<DexType> subtypes = new ArrayList<>(current.size() + 1);
+      subtypes.addAll(current);
+      int index = Collections.binarySearch(subtypes, subtype, DexType::slowCompareTo);
+      assert index < 0;
+      subtypes.add(-index - 1, subtype);
+      directSubtypes = ImmutableSet.copyOf(subtypes);
     }
 
     private void setLevel(int level) {
@@ -80,8 +110,7 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
 
     public synchronized void addDirectSubtype(TypeInfo subtypeInfo) {
       assert hierarchyLevel != UNKNOWN_LEVEL;
-      ensureDirectSubTypeSet();
-      directSubtypes.add(subtypeInfo.type);
+      addToDirectSubtypes(subtypeInfo.type);
       subtypeInfo.setLevel(hierarchyLevel + 1);
     }
 
@@ -103,13 +132,6 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
       return hierarchyLevel == UNKNOWN_LEVEL;
     }
 
-    synchronized void addInterfaceSubtype(DexType type) {
-      // Interfaces all inherit from java.lang.Object. However, we assign a special level to
-      // identify them later on.
-      setLevel(INTERFACE_LEVEL);
-      ensureDirectSubTypeSet();
-      directSubtypes.add(type);
-    }
   }
 
   // Set of missing classes, discovered during subtypeMap computation.
@@ -137,6 +159,14 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     populateSubtypeMap(application.asDirect(), application.dexItemFactory);
   }
 
+  public AppInfoWithSubtyping(DexApplication application, ExecutorService executorService)
+      throws ExecutionException {
+    super(application);
+    typeInfo = new ConcurrentHashMap<>();
+    // Recompute subtype map if we have modified the graph.
+    populateSubtypeMap(application.asDirect(), application.dexItemFactory, executorService);
+  }
+
   protected AppInfoWithSubtyping(AppInfoWithSubtyping previous) {
     super(previous);
     missingClasses.addAll(previous.missingClasses);
@@ -200,62 +230,168 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     return subtypes == null ? ImmutableSet.of() : subtypes;
   }
 
-  private void populateSuperType(Map<DexType, Set<DexType>> map, DexType superType,
-      DexClass baseClass, Function<DexType, DexClass> definitions) {
-    if (superType != null) {
-      Set<DexType> set = map.computeIfAbsent(superType, ignore -> new HashSet<>());
-      if (set.add(baseClass.type)) {
-        // Only continue recursion if type has been added to set.
-        populateAllSuperTypes(map, superType, baseClass, definitions);
-      }
-    }
-  }
-
   private TypeInfo getTypeInfo(DexType type) {
     assert type != null;
     return typeInfo.computeIfAbsent(type, TypeInfo::new);
   }
 
-  private void populateAllSuperTypes(Map<DexType, Set<DexType>> map, DexType holder,
-      DexClass baseClass, Function<DexType, DexClass> definitions) {
+  private void populateSubtypeMap(DirectMappedDexApplication app, DexItemFactory dexItemFactory) {
+    List<DexClass> classes = new ArrayList<>(app.allClasses());
+    SupertypesWalker walker = new SupertypesWalker(classes, app::definitionFor);
+    walker.run();
+    populateDirectSubtypes(classes, app::definitionFor, dexItemFactory);
+    populateSubtypeMap(ImmutableList.of(walker));
+    assert validateLevelsAreCorrect(app::definitionFor, dexItemFactory);
+  }
+
+  private void populateSubtypeMap(
+      DirectMappedDexApplication app,
+      DexItemFactory dexItemFactory,
+      ExecutorService executorService)
+      throws ExecutionException {
+    List<DexClass> classes = new ArrayList<>(app.allClasses());
+    List<SupertypesWalker> walkers = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < classes.size(); i += CLASSES_PER_TASK) {
+      SupertypesWalker walker =
+          new SupertypesWalker(
+              classes.subList(i, Math.min(i + CLASSES_PER_TASK, classes.size())),
+              app::definitionFor);
+      walkers.add(walker);
+      futures.add(executorService.submit(walker::run));
+    }
+    // The direct subtypes and the hierarchy levels are computed on this thread meanwhile.
+    populateDirectSubtypes(classes, app::definitionFor, dexItemFactory);
+    ThreadUtils.awaitFutures(futures);
+    populateSubtypeMap(walkers);
+    assert validateLevelsAreCorrect(app::definitionFor, dexItemFactory);
+  }
+
+  private void populateSubtypeMap(List<SupertypesWalker> walkers) {
+    // Merge the subtypes found by the walkers in the order of the walkers, such that the subtypes
+    // of each type are added to its set in the order of the classes, independently of how the
+    // classes were split between the walkers.
+    Map<DexType, List<DexType>> subtypes = new IdentityHashMap<>();
+    for (SupertypesWalker walker : walkers) {
+      missingClasses.addAll(walker.missingClasses);
+      walker.subtypes.forEach(
+          (type, walkerSubtypes) ->
+              subtypes.computeIfAbsent(type, ignore -> new ArrayList<>()).addAll(walkerSubtypes));
+    }
+    subtypes.forEach(
+        (type, typeSubtypes) -> {
+          Set<DexType> set = new HashSet<>();
+          set.addAll(typeSubtypes);
+          subtypeMap.put(type, ImmutableSet.copyOf(set));
+        });
+  }
+
+  private void populateDirectSubtypes(
+      List<DexClass> classes,
+      Function<DexType, DexClass> definitions,
+      DexItemFactory dexItemFactory) {
+    getTypeInfo(dexItemFactory.objectType).tagAsSubtypeRoot();
+    // The direct subtypes are collected in unsorted lists, which are sorted once at the end.
+    Map<TypeInfo, List<DexType>> directSubtypes = new IdentityHashMap<>();
+    Set<DexType> visited = Sets.newIdentityHashSet();
+    for (DexClass clazz : classes) {
+      populateDirectSubtypes(clazz.type, definitions, dexItemFactory, visited, directSubtypes);
+    }
+    directSubtypes.forEach(TypeInfo::setDirectSubtypes);
+  }
+
+  private void populateDirectSubtypes(
+      DexType holder,
+      Function<DexType, DexClass> definitions,
+      DexItemFactory dexItemFactory,
+      Set<DexType> visited,
+      Map<TypeInfo, List<DexType>> directSubtypes) {
+    if (!visited.add(holder)) {
+      return;
+    }
+    TypeInfo holderInfo = getTypeInfo(holder);
     DexClass holderClass = definitions.apply(holder);
     // Skip if no corresponding class is found.
     if (holderClass != null) {
-      populateSuperType(map, holderClass.superType, baseClass, definitions);
       if (holderClass.superType != null) {
-        getTypeInfo(holderClass.superType).addDirectSubtype(getTypeInfo(holder));
+        populateDirectSubtypes(
+            holderClass.superType, definitions, dexItemFactory, visited, directSubtypes);
+        TypeInfo superInfo = getTypeInfo(holderClass.superType);
+        assert superInfo.hierarchyLevel != UNKNOWN_LEVEL;
+        holderInfo.setLevel(superInfo.hierarchyLevel + 1);
+        directSubtypes.computeIfAbsent(superInfo, ignore -> new ArrayList<>()).add(holder);
       } else {
         // We found java.lang.Object
-        assert dexItemFactory().objectType == holder;
+        assert dexItemFactory.objectType == holder;
       }
       for (DexType inter : holderClass.interfaces.values) {
-        populateSuperType(map, inter, baseClass, definitions);
-        getTypeInfo(inter).addInterfaceSubtype(holder);
+        populateDirectSubtypes(inter, definitions, dexItemFactory, visited, directSubtypes);
+        // Interfaces all inherit from java.lang.Object. However, we assign a special level to
+        // identify them later on.
+        TypeInfo interInfo = getTypeInfo(inter);
+        interInfo.setLevel(INTERFACE_LEVEL);
+        directSubtypes.computeIfAbsent(interInfo, ignore -> new ArrayList<>()).add(holder);
       }
       if (holderClass.isInterface()) {
-        getTypeInfo(holder).tagAsInterface();
-      }
-    } else {
-      if (baseClass.isProgramClass() || baseClass.isClasspathClass()) {
-        missingClasses.add(holder);
+        holderInfo.tagAsInterface();
       }
+    } else if (holder != dexItemFactory.objectType) {
       // The subtype chain is broken, at least make this type a subtype of Object.
-      if (holder != dexItemFactory().objectType) {
-        getTypeInfo(dexItemFactory().objectType).addDirectSubtype(getTypeInfo(holder));
-      }
+      TypeInfo objectInfo = getTypeInfo(dexItemFactory.objectType);
+      holderInfo.setLevel(objectInfo.hierarchyLevel + 1);
+      directSubtypes.computeIfAbsent(objectInfo, ignore -> new ArrayList<>()).add(holder);
     }
   }
 
-  private void populateSubtypeMap(DirectMappedDexApplication app, DexItemFactory dexItemFactory) {
-    getTypeInfo(dexItemFactory.objectType).tagAsSubtypeRoot();
-    Map<DexType, Set<DexType>> map = new IdentityHashMap<>();
-    for (DexClass clazz : app.allClasses()) {
-      populateAllSuperTypes(map, clazz.type, clazz, app::definitionFor);
+  /**
+   * Walks the supertypes of a list of classes to find the (transitive) subtypes of each type, and
+   * the missing classes that are referenced as supertypes from the program and the classpath.
+   *
+   * <p>The walker does not access the type info, such that the supertypes of separate lists of
+   * classes can be walked concurrently.
+   */
+  private static class SupertypesWalker {
+
+    private final List<DexClass> classes;
+    private final Function<DexType, DexClass> definitions;
+
+    // Map from types to their subtypes, in the order of the classes.
+    private final Map<DexType, List<DexType>> subtypes = new IdentityHashMap<>();
+    private final Set<DexType> missingClasses = Sets.newIdentityHashSet();
+
+    SupertypesWalker(List<DexClass> classes, Function<DexType, DexClass> definitions) {
+      this.classes = classes;
+      this.definitions = definitions;
     }
-    for (Map.Entry<DexType, Set<DexType>> entry : map.entrySet()) {
-      subtypeMap.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+
+    void run() {
+      Set<DexType> visited = Sets.newIdentityHashSet();
+      for (DexClass clazz : classes) {
+        visited.clear();
+        populateAllSuperTypes(clazz.type, clazz, visited);
+      }
+    }
+
+    private void populateSuperType(DexType superType, DexClass baseClass, Set<DexType> visited) {
+      // Only continue recursion if type has not been visited for this class.
+      if (superType != null && visited.add(superType)) {
+        subtypes.computeIfAbsent(superType, ignore -> new ArrayList<>()).add(baseClass.type);
+        populateAllSuperTypes(superType, baseClass, visited);
+      }
+    }
+
+    private void populateAllSuperTypes(DexType holder, DexClass baseClass, Set<DexType> visited) {
+      DexClass holderClass = definitions.apply(holder);
+      // Skip if no corresponding class is found.
+      if (holderClass != null) {
+        populateSuperType(holderClass.superType, baseClass, visited);
+        for (DexType inter : holderClass.interfaces.values) {
+          populateSuperType(inter, baseClass, visited);
+        }
+      } else if (baseClass.isProgramClass() || baseClass.isClasspathClass()) {
+        missingClasses.add(holder);
+      }
     }
-    assert validateLevelsAreCorrect(app::definitionFor, dexItemFactory);
   }
 
   private boolean validateLevelsAreCorrect(
@@ -284,16 +420,16 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
         assert superInfo.hierarchyLevel == nextInfo.hierarchyLevel - 1
             || (superInfo.hierarchyLevel == ROOT_LEVEL
                 && nextInfo.hierarchyLevel == INTERFACE_LEVEL);
-        assert superInfo.directSubtypes.contains(next);
+        assert superInfo.getDirectSubtypes().contains(next);
       }
       if (nextInfo.hierarchyLevel != INTERFACE_LEVEL) {
         // Only traverse the class hierarchy subtypes, not interfaces.
-        worklist.addAll(nextInfo.directSubtypes);
+        worklist.addAll(nextInfo.getDirectSubtypes());
       } else if (nextHolder != null) {
         // Test that the interfaces of this class are interfaces and have this class as subtype.
         for (DexType iface : nextHolder.interfaces.values) {
           TypeInfo ifaceInfo = getTypeInfo(iface);
-          assert ifaceInfo.directSubtypes.contains(next);
+          assert ifaceInfo.getDirectSubtypes().contains(next);
           assert ifaceInfo.hierarchyLevel == INTERFACE_LEVEL;
         }
       }
@@ -455,7 +591,7 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   }
 
   public Set<DexType> allImmediateSubtypes(DexType type) {
-    return getTypeInfo(type).directSubtypes;
+    return getTypeInfo(type).getDirectSubtypes();
   }
 
   public boolean isUnknown(DexType type) {
@@ -468,7 +604,7 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
 
   @Override
   public boolean hasSubtypes(DexType type) {
-    return !getTypeInfo(type).directSubtypes.isEmpty();
+    return !getTypeInfo(type).getDirectSubtypes().isEmpty();
   }
 
   @Override
@@ -513,12 +649,29 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     }
     TypeInfo superInfo = getTypeInfo(supertype);
     if (superInfo.hierarchyLevel == INTERFACE_LEVEL) {
-      return superInfo.directSubtypes.stream()
-          .anyMatch(superSubtype -> isSubtype(subtype, superSubtype));
+      return isClassSubtypeOfInterface(subtype, supertype);
     }
     return isSubtypeOfClass(subInfo, superInfo, orElse);
   }
 
+  // Walks the supertypes of the class, which are typically much fewer than the subtypes of the
+  // interface.
+  private boolean isClassSubtypeOfInterface(DexType subtype, DexType supertype) {
+    DexClass holder = definitionFor(subtype);
+    while (holder != null) {
+      for (DexType iface : holder.interfaces.values) {
+        if (isInterfaceSubtypeOf(iface, supertype)) {
+          return true;
+        }
+      }
+      if (holder.superType == null) {
+        break;
+      }
+      holder = definitionFor(holder.superType);
+    }
+    return false;
+  }
+
   private boolean isInterfaceSubtypeOf(DexType candidate, DexType other) {
     if (candidate == other || other == dexItemFactory().objectType) {
       return true;
@@ -564,12 +717,12 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     TypeInfo info = getTypeInfo(type);
     assert info.hierarchyLevel != UNKNOWN_LEVEL;
     if (info.hierarchyLevel == INTERFACE_LEVEL) {
-      return Iterables.filter(info.directSubtypes, t -> getTypeInfo(t).isInterface());
+      return Iterables.filter(info.getDirectSubtypes(), t -> getTypeInfo(t).isInterface());
     } else if (info.hierarchyLevel == ROOT_LEVEL) {
       // This is the object type. Filter out interfaces
-      return Iterables.filter(info.directSubtypes, t -> !getTypeInfo(t).isInterface());
+      return Iterables.filter(info.getDirectSubtypes(), t -> !getTypeInfo(t).isInterface());
     } else {
-      return info.directSubtypes;
+      return info.getDirectSubtypes();
     }
   }
 
@@ -587,7 +740,8 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   public Iterable<DexType> allImmediateImplementsSubtypes(DexType type) {
     TypeInfo info = getTypeInfo(type);
     if (info.hierarchyLevel == INTERFACE_LEVEL) {
-      return Iterables.filter(info.directSubtypes, subtype -> !getTypeInfo(subtype).isInterface());
+      return Iterables.filter(
+          info.getDirectSubtypes(), subtype -> !getTypeInfo(subtype).isInterface());
     }
     return ImmutableList.of();
   }
@@ -641,8 +795,8 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   public DexType getSingleSubtype(DexType type) {
     TypeInfo info = getTypeInfo(type);
     assert info.hierarchyLevel != UNKNOWN_LEVEL;
-    if (info.directSubtypes.size() == 1) {
-      return Iterables.getFirst(info.directSubtypes, null);
+    if (info.getDirectSubtypes().size() == 1) {
+      return Iterables.getFirst(info.getDirectSubtypes(), null);
     } else {
       return null;
     }
@@ -652,7 +806,7 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   public boolean isDirectSubtype(DexType subtype, DexType supertype) {
     TypeInfo info = getTypeInfo(supertype);
     assert info.hierarchyLevel != UNKNOWN_LEVEL;
-    return info.directSubtypes.contains(subtype);
+    return info.getDirectSubtypes().contains(subtype);
   }
 
   // TODO(b/130636783): inconsistent location
@@ -20,10 +20,7 @@ public abstract class CachedHashValueDexItem extends DexItem {
   public final int hashCode() {
     int cache = hash;
     if (cache == NOT_COMPUTED_HASH_VALUE) {
-      cache = computeHashCode();
-      if (cache == NOT_COMPUTED_HASH_VALUE) {
-        cache = SENTINEL_HASH_VALUE;
-      }
+      cache = toCachedHashValue(computeHashCode());
       hash = cache;
     }
     assert cache == computeHashCode()
@@ -31,6 +28,11 @@ public abstract class CachedHashValueDexItem extends DexItem {
     return cache;
   }
 
+  // Returns the value of hashCode() for an item whose computeHashCode() returns the given hash.
+  static int toCachedHashValue(int hash) {
+    return hash == NOT_COMPUTED_HASH_VALUE ? SENTINEL_HASH_VALUE : hash;
+  }
+
   @Override
   public void flushCachedValues() {
     super.flushCachedValues();
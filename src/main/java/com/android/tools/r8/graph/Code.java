@@ -62,6 +62,16 @@ public abstract class Code extends CachedHashValueDexItem {
     return Integer.MAX_VALUE;
   }
 
+  /**
+   * Estimate the relative cost of building and optimizing the IR for this code.
+   *
+   * <p>Used to order the methods that are processed concurrently. Unlike {@link
+   * #estimatedSizeForInlining()}, this must not materialize code that is read lazily.
+   */
+  public int estimatedCost() {
+    return estimatedSizeForInlining();
+  }
+
   /** Compute estimatedSizeForInlining() <= threshold. */
   public boolean estimatedSizeForInliningAtMost(int threshold) {
     return estimatedSizeForInlining() <= threshold;
@@ -71,6 +81,10 @@ public abstract class Code extends CachedHashValueDexItem {
     throw new Unreachable(getClass().getCanonicalName() + ".asCfCode()");
   }
 
+  public boolean isLazyCfCode() {
+    return false;
+  }
+
   public LazyCfCode asLazyCfCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asLazyCfCode()");
   }
@@ -79,6 +93,14 @@ public abstract class Code extends CachedHashValueDexItem {
     throw new Unreachable(getClass().getCanonicalName() + ".asDexCode()");
   }
 
+  public boolean isLazyDexCode() {
+    return false;
+  }
+
+  public LazyDexCode asLazyDexCode() {
+    throw new Unreachable(getClass().getCanonicalName() + ".asLazyDexCode()");
+  }
+
   public OutlineCode asOutlineCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asOutlineCode()");
   }
@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 public abstract class DexApplication {
 
@@ -226,6 +228,14 @@ public abstract class DexApplication {
     return new LazyLoadedDexApplication.Builder(resolver, options, timing);
   }
 
+  /**
+   * Loads the definitions of the supertypes of all program classes, and transitively of their
+   * supertypes, in parallel. This is a no-op for applications where all classes are loaded.
+   */
+  public void prefetchSupertypes(ExecutorService executorService) throws ExecutionException {
+    // Nothing to prefetch by default.
+  }
+
   public DirectMappedDexApplication asDirect() {
     throw new Unreachable("Cannot use a LazyDexApplication where a DirectDexApplication is"
         + " expected.");
@@ -175,6 +175,9 @@ public class DexCode extends Code {
 
   @Override
   public boolean computeEquals(Object other) {
+    if (other instanceof LazyDexCode) {
+      other = ((LazyDexCode) other).asDexCode();
+    }
     if (other instanceof DexCode) {
       DexCode o = (DexCode) other;
       if (incomingRegisterSize != o.incomingRegisterSize) {
@@ -20,6 +20,7 @@ import com.android.tools.r8.graph.DexDebugEvent.SetPrologueEnd;
 import com.android.tools.r8.graph.DexMethodHandle.MethodHandleType;
 import com.android.tools.r8.ir.analysis.type.ArrayTypeLatticeElement;
 import com.android.tools.r8.ir.analysis.type.ClassTypeLatticeElement;
+import com.android.tools.r8.ir.analysis.type.LeastUpperBoundOfInterfacesCache;
 import com.android.tools.r8.ir.analysis.type.Nullability;
 import com.android.tools.r8.ir.analysis.type.ReferenceTypeLatticeElement;
 import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
@@ -29,7 +30,6 @@ import com.android.tools.r8.ir.code.Value;
 import com.android.tools.r8.kotlin.Kotlin;
 import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.utils.ArrayUtils;
-import com.android.tools.r8.utils.LRUCacheTable;
 import com.android.tools.r8.utils.Pair;
 import com.google.common.base.Strings;
 import com.google.common.collect.BiMap;
@@ -51,6 +51,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -69,6 +70,9 @@ public class DexItemFactory {
   private final ConcurrentHashMap<DexMethodHandle, DexMethodHandle> methodHandles =
       new ConcurrentHashMap<>();
 
+  // The id of the next canonicalized type, field or method, see DexReference#getId().
+  private final AtomicInteger nextReferenceId = new AtomicInteger();
+
   // DexDebugEvent Canonicalization.
   private final Int2ObjectMap<AdvanceLine> advanceLines = new Int2ObjectOpenHashMap<>();
   private final Int2ObjectMap<AdvancePC> advancePCs = new Int2ObjectOpenHashMap<>();
@@ -85,8 +89,8 @@ public class DexItemFactory {
       referenceTypeLatticeElements = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<DexType, Set<DexType>>
       classTypeLatticeInterfaces = new ConcurrentHashMap<>();
-  public final LRUCacheTable<Set<DexType>, Set<DexType>, Set<DexType>>
-      leastUpperBoundOfInterfacesTable = LRUCacheTable.create(8, 8);
+  public final LeastUpperBoundOfInterfacesCache leastUpperBoundOfInterfacesCache =
+      new LeastUpperBoundOfInterfacesCache();
 
   boolean sorted = false;
 
@@ -1137,6 +1141,22 @@ public class DexItemFactory {
   private static <T extends DexItem> T canonicalize(ConcurrentHashMap<T, T> map, T item) {
     assert item != null;
     assert !DexItemFactory.isInternalSentinel(item);
+    // Most items already exist. Look them up first, since get() does not lock, unlike
+    // putIfAbsent().
+    T previous = map.get(item);
+    if (previous != null) {
+      return previous;
+    }
+    previous = map.putIfAbsent(item, item);
+    return previous == null ? item : previous;
+  }
+
+  private <T extends DexReference> T canonicalizeReference(ConcurrentHashMap<T, T> map, T item) {
+    assert item != null;
+    assert !DexItemFactory.isInternalSentinel(item);
+    // The callers have already looked up the item. The id is assigned before the item is published.
+    // If another thread publishes an equal item first, then the id is not used.
+    item.setId(nextReferenceId.getAndIncrement());
     T previous = map.putIfAbsent(item, item);
     return previous == null ? item : previous;
   }
@@ -1148,11 +1168,41 @@ public class DexItemFactory {
 
   public DexString createString(String source) {
     assert !sorted;
+    DexString result = strings.get(new StringLookupKey(source));
+    if (result != null) {
+      return result;
+    }
     return canonicalize(strings, new DexString(source));
   }
 
   public DexString lookupString(String source) {
-    return strings.get(new DexString(source));
+    return strings.get(new StringLookupKey(source));
+  }
+
+  /**
+   * Key for looking up the DexString for a string in the map of strings, without encoding the
+   * string. This relies on ConcurrentHashMap.get(key) testing key.equals(k) for the keys k in the
+   * map, and not k.equals(key).
+   */
+  private static class StringLookupKey {
+
+    private final String source;
+    private final int hash;
+
+    StringLookupKey(String source) {
+      this.source = source;
+      this.hash = DexString.hashCodeOf(source);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof DexString && ((DexString) other).isEqualTo(source);
+    }
   }
 
   // Debugging support to extract marking string.
@@ -1169,20 +1219,26 @@ public class DexItemFactory {
     return markers;
   }
 
-  synchronized public DexType createType(DexString descriptor) {
+  public DexType createType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
     DexType result = types.get(descriptor);
     if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType() || result.isClassType() || result.isPrimitiveType() ||
-          result.isVoidType();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
+      // Only locks the bin of the descriptor, and only if the type does not exist yet.
+      result = types.computeIfAbsent(descriptor, this::newType);
     }
     return result;
   }
 
+  private DexType newType(DexString descriptor) {
+    DexType result = new DexType(descriptor);
+    assert result.isArrayType() || result.isClassType() || result.isPrimitiveType() ||
+        result.isVoidType();
+    assert !isInternalSentinel(result);
+    result.setId(nextReferenceId.getAndIncrement());
+    return result;
+  }
+
   public DexType createType(String descriptor) {
     return createType(createString(descriptor));
   }
@@ -1198,8 +1254,13 @@ public class DexItemFactory {
 
   public DexField createField(DexType clazz, DexType type, DexString name) {
     assert !sorted;
-    DexField field = new DexField(clazz, type, name, skipNameValidationForTesting);
-    return canonicalize(fields, field);
+    // Only validate the name when the field does not exist yet.
+    DexField field = fields.get(new DexField(clazz, type, name, true));
+    if (field != null) {
+      return field;
+    }
+    field = new DexField(clazz, type, name, skipNameValidationForTesting);
+    return canonicalizeReference(fields, field);
   }
 
   public DexField createField(DexType clazz, DexType type, String name) {
@@ -1292,8 +1353,13 @@ public class DexItemFactory {
 
   public DexMethod createMethod(DexType holder, DexProto proto, DexString name) {
     assert !sorted;
-    DexMethod method = new DexMethod(holder, proto, name, skipNameValidationForTesting);
-    return canonicalize(methods, method);
+    // Only validate the name when the method does not exist yet.
+    DexMethod method = methods.get(new DexMethod(holder, proto, name, true));
+    if (method != null) {
+      return method;
+    }
+    method = new DexMethod(holder, proto, name, skipNameValidationForTesting);
+    return canonicalizeReference(methods, method);
   }
 
   public DexMethod createMethod(DexType holder, DexProto proto, String name) {
@@ -1398,13 +1464,13 @@ public class DexItemFactory {
   public void clearTypeLatticeElementsCache() {
     referenceTypeLatticeElements.clear();
     classTypeLatticeInterfaces.clear();
-    leastUpperBoundOfInterfacesTable.clear();
+    leastUpperBoundOfInterfacesCache.clear();
   }
 
   public boolean verifyNoCachedTypeLatticeElements() {
     assert referenceTypeLatticeElements.isEmpty();
     assert classTypeLatticeInterfaces.isEmpty();
-    assert leastUpperBoundOfInterfacesTable.isEmpty();
+    assert leastUpperBoundOfInterfacesCache.isEmpty();
     return true;
   }
 
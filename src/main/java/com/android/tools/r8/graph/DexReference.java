@@ -13,6 +13,28 @@ import java.util.stream.Stream;
  */
 public abstract class DexReference extends IndexedDexItem {
 
+  private static final int ID_UNKNOWN = -1;
+
+  // Dense id that is assigned by the DexItemFactory when the reference is canonicalized. The ids of
+  // types, fields and methods are taken from the same sequence, such that references of different
+  // kinds can be stored in the same id-indexed table.
+  private int id = ID_UNKNOWN;
+
+  void setId(int id) {
+    assert id > ID_UNKNOWN;
+    assert this.id == ID_UNKNOWN;
+    this.id = id;
+  }
+
+  /**
+   * Returns the dense id of this reference, or -1 if the reference was not created by a {@link
+   * DexItemFactory}. The ids depend on the order in which the references were created, and must
+   * therefore not be used for ordering.
+   */
+  public int getId() {
+    return id;
+  }
+
   @Override
   public boolean isDexReference() {
     return true;
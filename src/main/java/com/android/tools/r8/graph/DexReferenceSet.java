@@ -0,0 +1,147 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of canonicalized {@link DexReference}s that is indexed by the dense ids of the references.
+ *
+ * <p>Membership is tracked in a bit set indexed by {@link DexReference#getId()}, which avoids the
+ * hashing of an identity hash set. The references are iterated in the order in which they were
+ * added, such that the iteration order does not depend on the ids.
+ *
+ * <p>Removed references leave a null entry in the list of references, which is skipped by the
+ * iterators. The null entries are only removed by {@link #add} and {@link #remove}, once there are
+ * more of them than there are references, so reading the set never modifies it.
+ *
+ * <p>The size of the bit set is bounded by the number of references created by the factory, so this
+ * set is intended for the few large sets of references that are kept for an entire application,
+ * and not for the many small sets, e.g., per class or per method.
+ */
+public class DexReferenceSet<T extends DexReference> extends AbstractSet<T> {
+
+  private final BitSet ids = new BitSet();
+  private final List<T> items = new ArrayList<>();
+  // Index in the list of items of each reference, keyed by the id of the reference.
+  private final Int2IntOpenHashMap positions = new Int2IntOpenHashMap();
+  private int size = 0;
+
+  @Override
+  public boolean add(T item) {
+    int id = item.getId();
+    if (id < 0) {
+      throw new IllegalArgumentException("Reference not created by a DexItemFactory: " + item);
+    }
+    if (ids.get(id)) {
+      return false;
+    }
+    compactIfMostlyRemoved();
+    ids.set(id);
+    positions.put(id, items.size());
+    items.add(item);
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof DexReference)) {
+      return false;
+    }
+    int id = ((DexReference) o).getId();
+    return id >= 0 && ids.get(id);
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!contains(o)) {
+      return false;
+    }
+    removeAt(positions.get(((DexReference) o).getId()));
+    compactIfMostlyRemoved();
+    return true;
+  }
+
+  private void removeAt(int position) {
+    int id = items.set(position, null).getId();
+    ids.clear(id);
+    positions.remove(id);
+    size--;
+  }
+
+  // Removes the null entries when they outnumber the references, such that the cost of compacting
+  // is proportional to the number of removals.
+  private void compactIfMostlyRemoved() {
+    if (items.size() - size <= size) {
+      return;
+    }
+    int position = 0;
+    for (T item : items) {
+      if (item != null) {
+        positions.put(item.getId(), position);
+        items.set(position++, item);
+      }
+    }
+    items.subList(position, items.size()).clear();
+  }
+
+  @Override
+  public void clear() {
+    ids.clear();
+    items.clear();
+    positions.clear();
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+
+      private int current = -1;
+      private int next = skipRemoved(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < items.size();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        current = next;
+        next = skipRemoved(next + 1);
+        return items.get(current);
+      }
+
+      @Override
+      public void remove() {
+        if (current < 0 || items.get(current) == null) {
+          throw new IllegalStateException();
+        }
+        removeAt(current);
+      }
+    };
+  }
+
+  private int skipRemoved(int position) {
+    while (position < items.size() && items.get(position) == null) {
+      position++;
+    }
+    return position;
+  }
+}
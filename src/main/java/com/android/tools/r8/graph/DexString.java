@@ -193,6 +193,61 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
     return h;
   }
 
+  /**
+   * Returns the value of {@link #hashCode()} of the DexString for the given string, without
+   * encoding the string.
+   */
+  static int hashCodeOf(String string) {
+    // Same as Arrays.hashCode() of the MUTF-8 encoding computed by encodeToMutf8(String).
+    int hash = 1;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      if (ch != 0 && ch <= 127) {
+        hash = 31 * hash + (byte) ch;
+      } else if (ch <= 2047) {
+        hash = 31 * hash + (byte) (0xc0 | (0x1f & (ch >> 6)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & ch));
+      } else {
+        hash = 31 * hash + (byte) (0xe0 | (0x0f & (ch >> 12)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & (ch >> 6)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & ch));
+      }
+    }
+    // The terminating '0'.
+    hash = 31 * hash;
+    return toCachedHashValue(string.length() * 7 + hash);
+  }
+
+  /** Returns true if this is equal to the DexString for the given string, without encoding it. */
+  boolean isEqualTo(String string) {
+    if (size != string.length()) {
+      return false;
+    }
+    int offset = 0;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      if (ch != 0 && ch <= 127) {
+        if (offset + 1 > content.length || content[offset++] != (byte) ch) {
+          return false;
+        }
+      } else if (ch <= 2047) {
+        if (offset + 2 > content.length
+            || content[offset++] != (byte) (0xc0 | (0x1f & (ch >> 6)))
+            || content[offset++] != (byte) (0x80 | (0x3f & ch))) {
+          return false;
+        }
+      } else {
+        if (offset + 3 > content.length
+            || content[offset++] != (byte) (0xe0 | (0x0f & (ch >> 12)))
+            || content[offset++] != (byte) (0x80 | (0x3f & (ch >> 6)))
+            || content[offset++] != (byte) (0x80 | (0x3f & ch))) {
+          return false;
+        }
+      }
+    }
+    return offset == content.length - 1 && content[offset] == 0;
+  }
+
   // Inspired from /dex/src/main/java/com/android/dex/Mutf8.java
   private static int countBytes(String string) {
     // We need an extra byte for the terminating '0'.
@@ -112,11 +112,20 @@ public class LazyCfCode extends Code {
     return true;
   }
 
+  @Override
+  public boolean isLazyCfCode() {
+    return true;
+  }
+
   @Override
   public LazyCfCode asLazyCfCode() {
     return this;
   }
 
+  public boolean isParsed() {
+    return code != null;
+  }
+
   @Override
   public CfCode asCfCode() {
     if (code == null) {
@@ -176,6 +185,12 @@ public class LazyCfCode extends Code {
     return asCfCode().estimatedSizeForInlining();
   }
 
+  @Override
+  public int estimatedCost() {
+    // The size of the code is not known before it has been parsed.
+    return isParsed() ? code.estimatedCost() : 0;
+  }
+
   @Override
   public boolean estimatedSizeForInliningAtMost(int threshold) {
     return asCfCode().estimatedSizeForInliningAtMost(threshold);
@@ -0,0 +1,182 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.code.InstructionFactory;
+import com.android.tools.r8.dex.IndexedItemCollection;
+import com.android.tools.r8.dex.MixedSectionCollection;
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.origin.Origin;
+import java.nio.ShortBuffer;
+
+/**
+ * Code item read from a DEX file whose instructions are only decoded on first use.
+ *
+ * <p>The header, the try blocks, the handlers and the debug info are read eagerly by the DexParser,
+ * while the instruction stream is kept as the raw code units together with the index mapping of
+ * the DEX file it was read from. The {@link DexCode} is materialized by {@link #asDexCode()}, after
+ * which the raw code units and the index mapping are released.
+ */
+public class LazyDexCode extends Code {
+
+  private final int registerSize;
+  private final int insSize;
+  private final int outsSize;
+  private final Try[] tries;
+  private final TryHandler[] handlers;
+  private final DexDebugInfo debugInfo;
+  private final int instructionUnitCount;
+
+  // Raw instruction stream and index mapping, cleared once the code has been decoded.
+  private short[] instructionUnits;
+  private OffsetToObjectMapping mapping;
+
+  private volatile DexCode code;
+
+  public LazyDexCode(
+      int registerSize,
+      int insSize,
+      int outsSize,
+      short[] instructionUnits,
+      Try[] tries,
+      TryHandler[] handlers,
+      DexDebugInfo debugInfo,
+      OffsetToObjectMapping mapping) {
+    this.registerSize = registerSize;
+    this.insSize = insSize;
+    this.outsSize = outsSize;
+    this.instructionUnits = instructionUnits;
+    this.instructionUnitCount = instructionUnits.length;
+    this.tries = tries;
+    this.handlers = handlers;
+    this.debugInfo = debugInfo;
+    this.mapping = mapping;
+  }
+
+  @Override
+  public boolean isDexCode() {
+    return true;
+  }
+
+  @Override
+  public boolean isLazyDexCode() {
+    return true;
+  }
+
+  @Override
+  public LazyDexCode asLazyDexCode() {
+    return this;
+  }
+
+  public boolean isParsed() {
+    return code != null;
+  }
+
+  @Override
+  public DexCode asDexCode() {
+    DexCode code = this.code;
+    if (code == null) {
+      synchronized (this) {
+        code = this.code;
+        if (code == null) {
+          Instruction[] instructions =
+              new InstructionFactory()
+                  .readSequenceFrom(
+                      ShortBuffer.wrap(instructionUnits), 0, instructionUnits.length, mapping);
+          code =
+              new DexCode(
+                  registerSize, insSize, outsSize, instructions, tries, handlers, debugInfo);
+          this.code = code;
+          instructionUnits = null;
+          mapping = null;
+        }
+      }
+    }
+    return code;
+  }
+
+  @Override
+  protected int computeHashCode() {
+    return asDexCode().hashCode();
+  }
+
+  @Override
+  protected boolean computeEquals(Object other) {
+    if (other instanceof LazyDexCode) {
+      other = ((LazyDexCode) other).asDexCode();
+    }
+    return asDexCode().equals(other);
+  }
+
+  @Override
+  public boolean isEmptyVoidMethod() {
+    return asDexCode().isEmptyVoidMethod();
+  }
+
+  @Override
+  public int estimatedSizeForInlining() {
+    return asDexCode().estimatedSizeForInlining();
+  }
+
+  @Override
+  public boolean estimatedSizeForInliningAtMost(int threshold) {
+    return asDexCode().estimatedSizeForInliningAtMost(threshold);
+  }
+
+  @Override
+  public int estimatedCost() {
+    // The number of code units is known without decoding the instructions.
+    return instructionUnitCount;
+  }
+
+  @Override
+  public IRCode buildIR(DexEncodedMethod encodedMethod, AppView<?> appView, Origin origin) {
+    return asDexCode().buildIR(encodedMethod, appView, origin);
+  }
+
+  @Override
+  public IRCode buildInliningIR(
+      DexEncodedMethod context,
+      DexEncodedMethod encodedMethod,
+      AppView<?> appView,
+      ValueNumberGenerator valueNumberGenerator,
+      Position callerPosition,
+      Origin origin) {
+    return asDexCode()
+        .buildInliningIR(
+            context, encodedMethod, appView, valueNumberGenerator, callerPosition, origin);
+  }
+
+  @Override
+  public void registerCodeReferences(DexEncodedMethod method, UseRegistry registry) {
+    asDexCode().registerCodeReferences(method, registry);
+  }
+
+  @Override
+  public String toString() {
+    return asDexCode().toString();
+  }
+
+  @Override
+  public String toString(DexEncodedMethod method, ClassNameMapper naming) {
+    return asDexCode().toString(method, naming);
+  }
+
+  @Override
+  void collectIndexedItems(
+      IndexedItemCollection indexedItems, DexMethod method, int instructionOffset) {
+    asDexCode().collectIndexedItems(indexedItems, method, instructionOffset);
+  }
+
+  @Override
+  void collectMixedSectionItems(MixedSectionCollection mixedItems) {
+    asDexCode().collectMixedSectionItems(mixedItems);
+  }
+}
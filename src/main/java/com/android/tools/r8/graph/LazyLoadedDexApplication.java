@@ -9,6 +9,7 @@ package com.android.tools.r8.graph;
 import com.android.tools.r8.DataResourceProvider;
 import com.android.tools.r8.dex.ApplicationReader.ProgramClassConflictResolver;
 import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.utils.ClassMap;
 import com.android.tools.r8.utils.ClasspathClassCollection;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LibraryClassCollection;
@@ -16,10 +17,15 @@ import com.android.tools.r8.utils.ProgramClassCollection;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 public class LazyLoadedDexApplication extends DexApplication {
 
@@ -88,6 +94,53 @@ public class LazyLoadedDexApplication extends DexApplication {
     return programClasses.get(type);
   }
 
+  @Override
+  public void prefetchSupertypes(ExecutorService executorService) throws ExecutionException {
+    Set<DexType> seen = Sets.newIdentityHashSet();
+    List<DexClass> worklist = new ArrayList<>(programClasses());
+    while (!worklist.isEmpty()) {
+      // Collect the supertypes that have not been seen and are not program classes.
+      List<DexType> supertypes = new ArrayList<>();
+      for (DexClass clazz : worklist) {
+        if (clazz.superType != null && seen.add(clazz.superType)) {
+          supertypes.add(clazz.superType);
+        }
+        for (DexType iface : clazz.interfaces.values) {
+          if (seen.add(iface)) {
+            supertypes.add(iface);
+          }
+        }
+      }
+      supertypes.removeIf(type -> programClasses.get(type) != null);
+      // Load a level of the hierarchy in parallel, in the order of definitionFor.
+      List<DexType> missing = new ArrayList<>(supertypes);
+      if (options.lookupLibraryBeforeProgram) {
+        prefetch(libraryClasses, missing, executorService);
+        prefetch(classpathClasses, missing, executorService);
+      } else {
+        prefetch(classpathClasses, missing, executorService);
+        prefetch(libraryClasses, missing, executorService);
+      }
+      worklist.clear();
+      for (DexType type : supertypes) {
+        DexClass clazz = definitionFor(type);
+        if (clazz != null) {
+          worklist.add(clazz);
+        }
+      }
+    }
+  }
+
+  // Prefetches the types from the collection, and removes the types that were found from `types`.
+  private static void prefetch(
+      ClassMap<?> classes, List<DexType> types, ExecutorService executorService)
+      throws ExecutionException {
+    if (classes != null && !types.isEmpty()) {
+      classes.prefetch(types, executorService);
+      types.removeIf(type -> classes.get(type) != null);
+    }
+  }
+
   static class AllClasses {
 
     // Mapping of all types to their definitions.
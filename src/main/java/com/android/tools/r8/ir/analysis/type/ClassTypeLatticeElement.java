@@ -230,11 +230,7 @@ public class ClassTypeLatticeElement extends ReferenceTypeLatticeElement {
     if (s1.isEmpty() || s2.isEmpty()) {
       return Collections.emptySet();
     }
-    Set<DexType> cached = appView.dexItemFactory().leastUpperBoundOfInterfacesTable.get(s1, s2);
-    if (cached != null) {
-      return cached;
-    }
-    cached = appView.dexItemFactory().leastUpperBoundOfInterfacesTable.get(s2, s1);
+    Set<DexType> cached = appView.dexItemFactory().leastUpperBoundOfInterfacesCache.get(s1, s2);
     if (cached != null) {
       return cached;
     }
@@ -302,9 +298,7 @@ public class ClassTypeLatticeElement extends ReferenceTypeLatticeElement {
     Set<DexType> lub = lubBuilder.build();
     // Cache the computation result only if the given two sets of interfaces are different.
     if (s1.size() != s2.size() || !s1.containsAll(s2)) {
-      synchronized (appView.dexItemFactory().leastUpperBoundOfInterfacesTable) {
-        appView.dexItemFactory().leastUpperBoundOfInterfacesTable.put(s1, s2, lub);
-      }
+      appView.dexItemFactory().leastUpperBoundOfInterfacesCache.put(s1, s2, lub);
     }
     return lub;
   }
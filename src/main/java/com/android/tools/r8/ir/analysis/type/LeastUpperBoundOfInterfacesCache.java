@@ -0,0 +1,77 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.analysis.type;
+
+import com.android.tools.r8.graph.DexType;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the least upper bounds of pairs of sets of interfaces, see {@link
+ * ClassTypeLatticeElement#computeLeastUpperBoundOfInterfaces}.
+ *
+ * <p>The least upper bound is symmetric, so the cache is keyed by the unordered pair of sets. The
+ * cache can be accessed concurrently from the threads that process methods. The number of entries
+ * is bounded by clearing the cache when it is full, which avoids tracking the order of accesses.
+ */
+public class LeastUpperBoundOfInterfacesCache {
+
+  private static final int MAX_SIZE = 4096;
+
+  private final ConcurrentHashMap<InterfacesPair, Set<DexType>> cache = new ConcurrentHashMap<>();
+
+  public Set<DexType> get(Set<DexType> s1, Set<DexType> s2) {
+    return cache.get(new InterfacesPair(s1, s2));
+  }
+
+  public void put(Set<DexType> s1, Set<DexType> s2, Set<DexType> lub) {
+    if (cache.size() >= MAX_SIZE) {
+      cache.clear();
+    }
+    cache.putIfAbsent(new InterfacesPair(s1, s2), lub);
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  public boolean isEmpty() {
+    return cache.isEmpty();
+  }
+
+  private static class InterfacesPair {
+
+    private final Set<DexType> s1;
+    private final Set<DexType> s2;
+    private final int hash;
+
+    InterfacesPair(Set<DexType> s1, Set<DexType> s2) {
+      this.s1 = s1;
+      this.s2 = s2;
+      // Symmetric, such that the hash code does not depend on the order of the sets.
+      this.hash = s1.hashCode() + s2.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof InterfacesPair)) {
+        return false;
+      }
+      InterfacesPair other = (InterfacesPair) o;
+      if (hash != other.hash) {
+        return false;
+      }
+      return (s1.equals(other.s1) && s2.equals(other.s2))
+          || (s1.equals(other.s2) && s2.equals(other.s1));
+    }
+  }
+}
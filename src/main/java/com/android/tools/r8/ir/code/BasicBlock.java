@@ -165,7 +165,8 @@ public class BasicBlock {
   // in predecessor blocks.
   private boolean filled = false;
   private boolean sealed = false;
-  private final Map<Integer, Phi> incompletePhis = new HashMap<>();
+  // Allocated on the first incomplete phi, and released when the block is sealed.
+  private Map<Integer, Phi> incompletePhis = null;
   private int estimatedPredecessorsCount = 0;
   private int unfilledPredecessorsCount = 0;
 
@@ -1008,15 +1009,17 @@ public class BasicBlock {
     assert unfilledPredecessorsCount > 0;
     if (--unfilledPredecessorsCount == 0) {
       assert estimatedPredecessorsCount == predecessors.size();
-      for (Entry<Integer, Phi> entry : incompletePhis.entrySet()) {
-        int register = entry.getKey();
-        if (register < 0) {
-          register = onThrowValueRegister(register);
+      if (incompletePhis != null) {
+        for (Entry<Integer, Phi> entry : incompletePhis.entrySet()) {
+          int register = entry.getKey();
+          if (register < 0) {
+            register = onThrowValueRegister(register);
+          }
+          entry.getValue().addOperands(builder, register);
         }
-        entry.getValue().addOperands(builder, register);
       }
       sealed = true;
-      incompletePhis.clear();
+      incompletePhis = null;
     }
   }
 
@@ -1053,16 +1056,19 @@ public class BasicBlock {
     if (isOnThrowValue(register, readingEdge)) {
       register = onThrowValueRegister(register);
     }
+    if (incompletePhis == null) {
+      incompletePhis = new HashMap<>();
+    }
     assert !incompletePhis.containsKey(register);
     incompletePhis.put(register, phi);
   }
 
   public boolean hasIncompletePhis() {
-    return !incompletePhis.isEmpty();
+    return incompletePhis != null && !incompletePhis.isEmpty();
   }
 
   public Collection<Integer> getIncompletePhiRegisters() {
-    return incompletePhis.keySet();
+    return incompletePhis == null ? Collections.emptySet() : incompletePhis.keySet();
   }
 
   private static void appendBasicBlockList(
@@ -1128,7 +1134,7 @@ public class BasicBlock {
     if (phis != null && phis.size() > 0) {
       for (Phi phi : phis) {
         builder.append(phi.printPhi());
-        if (incompletePhis.values().contains(phi)) {
+        if (incompletePhis != null && incompletePhis.values().contains(phi)) {
           builder.append(" (incomplete)");
         }
         builder.append('\n');
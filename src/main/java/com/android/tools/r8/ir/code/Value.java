@@ -29,7 +29,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -200,14 +199,19 @@ public class Value {
 
   public static final int UNDEFINED_NUMBER = -1;
 
+  private static final int INITIAL_USERS_CAPACITY = 2;
+
   public static final Value UNDEFINED =
       new Value(UNDEFINED_NUMBER, TypeLatticeElement.BOTTOM, null);
 
   protected final int number;
   public Instruction definition = null;
-  private LinkedList<Instruction> users = new LinkedList<>();
+  // The users are kept in array lists, which unlike linked lists do not allocate a node per use.
+  // A list is allocated on the first use, since most values have no phi users. Most values with
+  // users have one or two, which fit in the initial capacity.
+  private List<Instruction> users = Collections.emptyList();
   private Set<Instruction> uniqueUsers = null;
-  private LinkedList<Phi> phiUsers = new LinkedList<>();
+  private List<Phi> phiUsers = Collections.emptyList();
   private Set<Phi> uniquePhiUsers = null;
   private Value nextConsecutive = null;
   private Value previousConsecutive = null;
@@ -421,12 +425,12 @@ public class Value {
 
   public Instruction singleUniqueUser() {
     assert ImmutableSet.copyOf(users).size() == 1;
-    return users.getFirst();
+    return users.get(0);
   }
 
   public Phi firstPhiUser() {
     assert !phiUsers.isEmpty();
-    return phiUsers.getFirst();
+    return phiUsers.get(0);
   }
 
   public Set<Phi> uniquePhiUsers() {
@@ -510,6 +514,9 @@ public class Value {
   }
 
   public void addUser(Instruction user) {
+    if (users.isEmpty()) {
+      users = new ArrayList<>(INITIAL_USERS_CAPACITY);
+    }
     users.add(user);
     uniqueUsers = null;
   }
@@ -525,9 +532,9 @@ public class Value {
   }
 
   public void clearUsers() {
-    users.clear();
+    users = Collections.emptyList();
     uniqueUsers = null;
-    phiUsers.clear();
+    phiUsers = Collections.emptyList();
     uniquePhiUsers = null;
     if (debugData != null) {
       debugData.users.clear();
@@ -535,6 +542,9 @@ public class Value {
   }
 
   public void addPhiUser(Phi user) {
+    if (phiUsers.isEmpty()) {
+      phiUsers = new ArrayList<>(INITIAL_USERS_CAPACITY);
+    }
     phiUsers.add(user);
     uniquePhiUsers = null;
   }
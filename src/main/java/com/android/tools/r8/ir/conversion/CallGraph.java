@@ -76,13 +76,6 @@ public class CallGraph {
       caller.callees.remove(this);
     }
 
-    public void cleanForRemoval() {
-      assert callees.isEmpty();
-      for (Node caller : callers) {
-        caller.callees.remove(this);
-      }
-    }
-
     public Set<Node> getCallersWithDeterministicOrder() {
       return callers;
     }
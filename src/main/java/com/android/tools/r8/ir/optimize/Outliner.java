@@ -87,16 +87,16 @@ import java.util.function.BiConsumer;
  * <ul>
  *   <li>First, all methods are converted to IR and passed to {@link
  *       Outliner#identifyCandidateMethods()} to identify outlining candidates and the methods
- *       containing each candidate. IR is converted to the output format (DEX or CF) and thrown away
- *       along with the outlining candidates; only a list of lists of methods is kept, where each
- *       list of methods corresponds to methods containing an outlining candidate.
- *   <li>Second, {@link Outliner#selectMethodsForOutlining()} is called to retain the lists of
- *       methods found in the first step that are large enough (see {@link InternalOptions#outline}
- *       {@link OutlineOptions#threshold}), and the methods to be further analyzed for outlining is
- *       returned by {@link Outliner#getMethodsSelectedForOutlining}. Each selected method is then
- *       converted back to IR and passed to {@link Outliner#identifyOutlineSites(IRCode,
- *       DexEncodedMethod)}, which then stores concrete outlining candidates in {@link
- *       Outliner#outlineSites}.
+ *       containing each candidate. IR is converted to the output format (DEX or CF) and thrown
+ *       away. The candidates are collected in a table per thread, which maps each candidate to the
+ *       list of methods containing it.
+ *   <li>Second, {@link Outliner#selectMethodsForOutlining()} is called to merge the tables of the
+ *       first step and retain the lists of methods that are large enough (see {@link
+ *       InternalOptions#outline} {@link OutlineOptions#threshold}), and the methods to be further
+ *       analyzed for outlining is returned by {@link Outliner#getMethodsSelectedForOutlining}. Each
+ *       selected method is then converted back to IR and passed to {@link
+ *       Outliner#identifyOutlineSites(IRCode, DexEncodedMethod)}, which then stores concrete
+ *       outlining candidates in {@link Outliner#outlineSites}.
  *   <li>Third, {@link Outliner#buildOutlinerClass(DexType)} is called to construct the <em>outline
  *       support class</em> containing a static helper method for each outline candidate that occurs
  *       frequently enough. Each selected method is then converted to IR, passed to {@link
@@ -107,7 +107,7 @@ import java.util.function.BiConsumer;
 public class Outliner {
 
   /** Result of first step (see {@link Outliner#identifyCandidateMethods()}. */
-  private final List<List<DexEncodedMethod>> candidateMethodLists = new ArrayList<>();
+  private final List<Map<Outline, List<DexEncodedMethod>>> candidateMaps = new ArrayList<>();
   /** Result of second step (see {@link Outliner#selectMethodsForOutlining()}. */
   private final Set<DexEncodedMethod> methodsSelectedForOutlining = Sets.newIdentityHashSet();
   /** Result of second step (see {@link Outliner#selectMethodsForOutlining()}. */
@@ -536,6 +536,7 @@ public class Outliner {
     final List<OutlineInstruction> templateInstructions = new ArrayList<>();
     final public DexType returnType;
 
+    private final int hash;
     private DexProto proto;
 
     // Build an outline over the instructions [start, end[.
@@ -561,6 +562,18 @@ public class Outliner {
           assert false : "Unexpected type of instruction in outlining template.";
         }
       }
+      this.hash = computeHash();
+    }
+
+    // The hash covers all of the template instructions, such that outlines that only differ
+    // after a common prefix do not collide in the candidate tables.
+    private int computeHash() {
+      int hash = templateInstructions.size();
+      for (OutlineInstruction instruction : templateInstructions) {
+        hash = hash * 31 + instruction.hashCode();
+      }
+      hash = hash * 31 + argumentMap.hashCode();
+      return hash * 31 + argumentTypes.hashCode();
     }
 
     int argumentCount() {
@@ -586,6 +599,9 @@ public class Outliner {
         return false;
       }
       Outline otherOutline = (Outline) other;
+      if (hash != otherOutline.hash) {
+        return false;
+      }
       List<OutlineInstruction> instructions0 = this.templateInstructions;
       List<OutlineInstruction> instructions1 = otherOutline.templateInstructions;
       if (instructions0.size() != instructions1.size()) {
@@ -605,16 +621,6 @@ public class Outliner {
 
     @Override
     public int hashCode() {
-      final int MAX_HASH_INSTRUCTIONS = 5;
-
-      int hash = templateInstructions.size();
-      int hashPart = 0;
-      for (int i = 0; i < templateInstructions.size() && i < MAX_HASH_INSTRUCTIONS; i++) {
-        OutlineInstruction instruction = templateInstructions.get(i);
-        hashPart = hashPart << 4;
-        hashPart += instruction.hashCode();
-        hash = hash * 3 + hashPart;
-      }
       return hash;
     }
 
@@ -1142,15 +1148,7 @@ public class Outliner {
 
     @Override
     protected void handle(int start, int end, Outline outline) {
-      synchronized (candidateMap) {
-        candidateMap.computeIfAbsent(outline, this::addOutlineMethodList).add(method);
-      }
-    }
-
-    private List<DexEncodedMethod> addOutlineMethodList(Outline outline) {
-      List<DexEncodedMethod> result = new ArrayList<>();
-      candidateMethodLists.add(result);
-      return result;
+      candidateMap.computeIfAbsent(outline, k -> new ArrayList<>()).add(method);
     }
   }
 
@@ -1268,14 +1266,24 @@ public class Outliner {
   public BiConsumer<IRCode, DexEncodedMethod> identifyCandidateMethods() {
     // Since optimizations may change the map identity of Outline objects (e.g. by setting the
     // out-value of invokes to null), this map must not be used except for identifying methods
-    // potentially relevant to outlining. OutlineMethodIdentifier will add method lists to
-    // candidateMethodLists whenever it adds an entry to candidateMap.
-    Map<Outline, List<DexEncodedMethod>> candidateMap = new HashMap<>();
-    assert candidateMethodLists.isEmpty();
+    // potentially relevant to outlining. Each thread collects the candidates in its own map, such
+    // that the threads do not contend for a shared map. The maps are merged when selecting the
+    // methods for outlining.
+    assert candidateMaps.isEmpty();
+    ThreadLocal<Map<Outline, List<DexEncodedMethod>>> candidateMap =
+        ThreadLocal.withInitial(
+            () -> {
+              Map<Outline, List<DexEncodedMethod>> map = new HashMap<>();
+              synchronized (candidateMaps) {
+                candidateMaps.add(map);
+              }
+              return map;
+            });
     return (code, method) -> {
       assert !(method.getCode() instanceof OutlineCode);
+      Map<Outline, List<DexEncodedMethod>> map = candidateMap.get();
       for (BasicBlock block : code.blocks) {
-        new OutlineMethodIdentifier(method, block, candidateMap).process();
+        new OutlineMethodIdentifier(method, block, map).process();
       }
     };
   }
@@ -1290,7 +1298,7 @@ public class Outliner {
   public boolean selectMethodsForOutlining() {
     assert methodsSelectedForOutlining.size() == 0;
     assert outlineSites.size() == 0;
-    for (List<DexEncodedMethod> outlineMethods : candidateMethodLists) {
+    for (List<DexEncodedMethod> outlineMethods : mergeCandidateMaps().values()) {
       if (outlineMethods.size() >= appView.options().outline.threshold) {
         for (DexEncodedMethod outlineMethod : outlineMethods) {
           methodsSelectedForOutlining.add(
@@ -1298,10 +1306,28 @@ public class Outliner {
         }
       }
     }
-    candidateMethodLists.clear();
     return methodsSelectedForOutlining.size() > 0;
   }
 
+  private Map<Outline, List<DexEncodedMethod>> mergeCandidateMaps() {
+    Map<Outline, List<DexEncodedMethod>> result = new HashMap<>();
+    for (Map<Outline, List<DexEncodedMethod>> candidateMap : candidateMaps) {
+      candidateMap.forEach(
+          (outline, methods) ->
+              result.merge(
+                  outline,
+                  methods,
+                  (methods1, methods2) -> {
+                    methods1.addAll(methods2);
+                    return methods1;
+                  }));
+      // The map may still be referenced from the thread that collected it.
+      candidateMap.clear();
+    }
+    candidateMaps.clear();
+    return result;
+  }
+
   public Set<DexEncodedMethod> getMethodsSelectedForOutlining() {
     return methodsSelectedForOutlining;
   }
@@ -1312,6 +1338,7 @@ public class Outliner {
     // consistent order, to provide deterministic output.
     List<Outline> outlines = selectOutlines();
     outlines.sort(Comparator.naturalOrder());
+    retainMethodsWithOutlineSites(outlines);
     DexEncodedMethod[] direct = new DexEncodedMethod[outlines.size()];
     int count = 0;
     for (Outline outline : outlines) {
@@ -1370,7 +1397,7 @@ public class Outliner {
 
   private List<Outline> selectOutlines() {
     assert outlineSites.size() > 0;
-    assert candidateMethodLists.isEmpty();
+    assert candidateMaps.isEmpty();
     List<Outline> result = new ArrayList<>();
     for (Entry<Outline, List<DexEncodedMethod>> entry : outlineSites.entrySet()) {
       if (entry.getValue().size() >= appView.options().outline.threshold) {
@@ -1380,6 +1407,19 @@ public class Outliner {
     return result;
   }
 
+  /**
+   * Only the methods that have a site of one of the selected outlines are changed by applying the
+   * outlines. The remaining methods keep the code from the primary optimization pass, such that
+   * their IR is not built again.
+   */
+  private void retainMethodsWithOutlineSites(List<Outline> outlines) {
+    Set<DexEncodedMethod> methodsWithOutlineSites = Sets.newIdentityHashSet();
+    for (Outline outline : outlines) {
+      methodsWithOutlineSites.addAll(outlineSites.get(outline));
+    }
+    methodsSelectedForOutlining.retainAll(methodsWithOutlineSites);
+  }
+
   public void applyOutliningCandidate(IRCode code, DexEncodedMethod method) {
     assert !(method.getCode() instanceof OutlineCode);
     ListIterator<BasicBlock> blocksIterator = code.listIterator();
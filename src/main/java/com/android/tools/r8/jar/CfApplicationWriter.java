@@ -104,11 +104,11 @@ public class CfApplicationWriter {
   }
 
   private void writeApplication(ClassFileConsumer consumer, ExecutorService executor) {
-    ProguardMapSupplier.ProguardMapAndId proguardMapAndId = null;
+    ProguardMapSupplier.ProguardMapId proguardMapId = null;
     if (proguardMapSupplier != null && options.proguardMapConsumer != null) {
-      proguardMapAndId = proguardMapSupplier.getProguardMapAndId();
-      if (proguardMapAndId != null) {
-        marker.setPgMapId(proguardMapAndId.id);
+      proguardMapId = proguardMapSupplier.getProguardMapId();
+      if (proguardMapId != null) {
+        marker.setPgMapId(proguardMapId.id);
       }
     }
     String markerString = marker.toString();
@@ -125,7 +125,8 @@ public class CfApplicationWriter {
         graphLense,
         namingLens,
         options,
-        proguardMapAndId == null ? null : proguardMapAndId.map);
+        proguardMapSupplier,
+        proguardMapId);
   }
 
   private void writeClass(DexProgramClass clazz, ClassFileConsumer consumer, String markerString) {
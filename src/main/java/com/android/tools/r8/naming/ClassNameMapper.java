@@ -57,6 +57,14 @@ public class ClassNameMapper implements ProguardMap {
       return classNamingBuilder;
     }
 
+    /**
+     * Adds the naming of a class that was created by {@link ClassNamingForNameMapper#builder}. This
+     * allows building the namings of classes concurrently, and adding them to the mapper after.
+     */
+    public void addClassNamingBuilder(ClassNamingForNameMapper.Builder classNamingBuilder) {
+      mapBuilder.put(classNamingBuilder.getRenamedName(), classNamingBuilder);
+    }
+
     @Override
     public ClassNameMapper build() {
       return new ClassNameMapper(mapBuilder.build());
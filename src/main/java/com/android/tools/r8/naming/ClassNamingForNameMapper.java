@@ -39,6 +39,10 @@ public class ClassNamingForNameMapper implements ClassNaming {
       this.renamedName = renamedName;
     }
 
+    String getRenamedName() {
+      return renamedName;
+    }
+
     @Override
     public ClassNaming.Builder addMemberEntry(MemberNaming entry) {
       if (entry.isMethodNaming()) {
@@ -173,7 +177,7 @@ public class ClassNamingForNameMapper implements ClassNaming {
     }
   }
 
-  static Builder builder(String renamedName, String originalName) {
+  public static Builder builder(String renamedName, String originalName) {
     return new Builder(renamedName, originalName);
   }
 
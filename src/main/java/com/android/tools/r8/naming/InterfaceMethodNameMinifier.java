@@ -14,6 +14,7 @@ import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.DisjointSets;
 import com.android.tools.r8.utils.MethodJavaSignatureEquivalence;
 import com.android.tools.r8.utils.MethodSignatureEquivalence;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.base.Equivalence;
 import com.google.common.base.Equivalence.Wrapper;
@@ -26,9 +27,13 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -402,7 +407,9 @@ class InterfaceMethodNameMinifier {
     }
   }
 
-  void assignNamesToInterfaceMethods(Timing timing, Collection<DexClass> interfaces) {
+  void assignNamesToInterfaceMethods(
+      Collection<DexClass> interfaces, ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     timing.begin("Interface minification");
     // Reserve all the names that are required for interfaces.
     timing.begin("Reserve direct and compute hierarchy");
@@ -530,29 +537,73 @@ class InterfaceMethodNameMinifier {
     timing.end();
 
     timing.begin("Rename in groups");
-    for (Wrapper<DexMethod> interfaceMethodGroup : nonReservedMethodGroups) {
-      InterfaceMethodGroupState groupState = globalStateMap.get(interfaceMethodGroup);
-      assert groupState != null;
-      assert groupState.getReservedName() == null;
-      DexString newName = assignNewName(interfaceMethodGroup.get(), groupState);
-      assert newName != null;
-      Set<String> loggingFilter = appView.options().extensiveInterfaceMethodMinifierLoggingFilter;
-      if (!loggingFilter.isEmpty()) {
-        Set<DexMethod> sourceMethods = groupState.methodStates.keySet();
-        if (sourceMethods.stream()
-            .map(DexMethod::toSourceString)
-            .anyMatch(loggingFilter::contains)) {
-          print(interfaceMethodGroup.get(), sourceMethods, System.out);
-        }
+    // All naming states that are used for renaming are allocated up front, such that the groups
+    // can be renamed in parallel without updating the shared map of naming states.
+    for (InterfaceReservationState interfaceState : interfaceStateMap.values()) {
+      interfaceState.reservationTypes.forEach(minifierState::getNamingState);
+    }
+    if (appView.options().extensiveInterfaceMethodMinifierLoggingFilter.isEmpty()) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<Wrapper<DexMethod>> partition :
+          partitionByNamingStateKeys(nonReservedMethodGroups)) {
+        futures.add(executorService.submit(() -> partition.forEach(this::renameGroup)));
+      }
+      ThreadUtils.awaitFutures(futures);
+    } else {
+      nonReservedMethodGroups.forEach(this::renameGroup);
+    }
+    timing.end();
+
+    timing.end(); // end compute timing
+  }
+
+  /**
+   * Partitions the groups such that groups in different partitions only use the naming states
+   * for different method keys, and can therefore be renamed independently of each other. The
+   * groups in each partition keep their relative order, which makes the result independent of the
+   * order in which the partitions are processed.
+   */
+  private Collection<List<Wrapper<DexMethod>>> partitionByNamingStateKeys(
+      List<Wrapper<DexMethod>> groups) {
+    DisjointSets<Object> keys = new DisjointSets<>();
+    for (Wrapper<DexMethod> group : groups) {
+      Object representative = keys.findOrMakeSet(minifierState.getNamingStateKey(group.get()));
+      for (DexMethod method : globalStateMap.get(group).methodStates.keySet()) {
+        representative =
+            keys.union(
+                representative, keys.findOrMakeSet(minifierState.getNamingStateKey(method)));
       }
+    }
+    Map<Object, List<Wrapper<DexMethod>>> partitions = new LinkedHashMap<>();
+    for (Wrapper<DexMethod> group : groups) {
+      partitions
+          .computeIfAbsent(
+              keys.findSet(minifierState.getNamingStateKey(group.get())),
+              ignore -> new ArrayList<>())
+          .add(group);
+    }
+    return partitions.values();
+  }
+
+  private void renameGroup(Wrapper<DexMethod> interfaceMethodGroup) {
+    InterfaceMethodGroupState groupState = globalStateMap.get(interfaceMethodGroup);
+    assert groupState != null;
+    assert groupState.getReservedName() == null;
+    DexString newName = assignNewName(interfaceMethodGroup.get(), groupState);
+    assert newName != null;
+    Set<String> loggingFilter = appView.options().extensiveInterfaceMethodMinifierLoggingFilter;
+    if (!loggingFilter.isEmpty()) {
+      Set<DexMethod> sourceMethods = groupState.methodStates.keySet();
+      if (sourceMethods.stream().map(DexMethod::toSourceString).anyMatch(loggingFilter::contains)) {
+        print(interfaceMethodGroup.get(), sourceMethods, System.out);
+      }
+    }
+    synchronized (callSiteRenamings) {
       for (DexCallSite callSite : groupState.callSites) {
         assert !callSiteRenamings.containsKey(callSite);
         callSiteRenamings.put(callSite, newName);
       }
     }
-    timing.end();
-
-    timing.end(); // end compute timing
   }
 
   private DexString assignNewName(DexMethod method, InterfaceMethodGroupState groupState) {
@@ -12,15 +12,22 @@ import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 /**
@@ -74,7 +81,8 @@ import java.util.function.Function;
  *
  * <p>In stage 4, we assign names to methods by traversing the subtype tree, now allocating separate
  * naming states for each class starting from the frontier. In the first swoop, we allocate all
- * non-private methods, updating naming states accordingly.
+ * non-private methods, updating naming states accordingly. Sibling subtrees do not share any
+ * mutable naming state, so the classes on each level of the tree are named in parallel.
  *
  * <p>Finally, the computed renamings are returned as a map from {@link DexMethod} to {@link
  * DexString}. The MethodNameMinifier object should not be retained to ensure all intermediate state
@@ -113,12 +121,19 @@ class MethodNameMinifier {
     DexString getReservedName(DexEncodedMethod method, DexClass holder) {
       return strategy.getReservedName(method, holder);
     }
+
+    // Methods with different keys are named using disjoint parts of the naming states.
+    Object getNamingStateKey(DexMethod method) {
+      return keyTransform.apply(method);
+    }
   }
 
   private final AppView<AppInfoWithLiveness> appView;
   private final MemberNamingStrategy strategy;
+  private final Function<DexMethod, ?> keyTransform;
 
-  private final Map<DexMethod, DexString> renaming = new IdentityHashMap<>();
+  private final Map<DexMethod, DexString> renaming =
+      Collections.synchronizedMap(new IdentityHashMap<>());
 
   private final State minifierState = new State();
 
@@ -134,9 +149,9 @@ class MethodNameMinifier {
   MethodNameMinifier(AppView<AppInfoWithLiveness> appView, MemberNamingStrategy strategy) {
     this.appView = appView;
     this.strategy = strategy;
-    rootReservationState = MethodReservationState.createRoot(getKeyTransform());
-    rootNamingState =
-        MethodNamingState.createRoot(getKeyTransform(), strategy, rootReservationState);
+    this.keyTransform = getKeyTransform();
+    rootReservationState = MethodReservationState.createRoot(keyTransform);
+    rootNamingState = MethodNamingState.createRoot(keyTransform, strategy, rootReservationState);
     namingStates.put(null, rootNamingState);
   }
 
@@ -167,7 +182,11 @@ class MethodNameMinifier {
   }
 
   MethodRenaming computeRenaming(
-      Collection<DexClass> interfaces, Set<DexCallSite> desugaredCallSites, Timing timing) {
+      Collection<DexClass> interfaces,
+      Set<DexCallSite> desugaredCallSites,
+      ExecutorService executorService,
+      Timing timing)
+      throws ExecutionException {
     // Phase 1: Reserve all the names that need to be kept and allocate linked state in the
     //          library part.
     timing.begin("Phase 1");
@@ -181,23 +200,51 @@ class MethodNameMinifier {
         new InterfaceMethodNameMinifier(appView, desugaredCallSites, minifierState);
     timing.end();
     timing.begin("Phase 3");
-    interfaceMethodNameMinifier.assignNamesToInterfaceMethods(timing, interfaces);
+    interfaceMethodNameMinifier.assignNamesToInterfaceMethods(interfaces, executorService, timing);
     timing.end();
     // Phase 4: Assign names top-down by traversing the subtype hierarchy.
     timing.begin("Phase 4");
-    assignNamesToClassesMethods(appView.dexItemFactory().objectType, rootNamingState);
+    assignNamesToClassesMethods(executorService);
     timing.end();
 
     return new MethodRenaming(renaming, interfaceMethodNameMinifier.getCallSiteRenamings());
   }
 
-  private void assignNamesToClassesMethods(DexType type, MethodNamingState<?> parentNamingState) {
-    MethodReservationState<?> reservationState =
-        reservationStates.get(frontiers.getOrDefault(type, type));
-    assert reservationState != null : "Could not find reservation state for " + type.toString();
-    MethodNamingState<?> namingState =
-        namingStates.computeIfAbsent(
-            type, ignore -> parentNamingState.createChild(reservationState));
+  private void assignNamesToClassesMethods(ExecutorService executorService)
+      throws ExecutionException {
+    // The naming state of a class is only updated while naming the methods of that class, and the
+    // states of its supertypes are only read. Hence all classes at the same depth in the subtype
+    // hierarchy can be named in parallel once the classes above them are done. Each level maps the
+    // types to the naming state of their supertype.
+    Map<DexType, MethodNamingState<?>> level = new IdentityHashMap<>();
+    level.put(appView.dexItemFactory().objectType, rootNamingState);
+    while (!level.isEmpty()) {
+      Map<DexType, MethodNamingState<?>> nextLevel = new IdentityHashMap<>();
+      List<Future<?>> futures = new ArrayList<>();
+      level.forEach(
+          (type, parentNamingState) -> {
+            MethodReservationState<?> reservationState =
+                reservationStates.get(frontiers.getOrDefault(type, type));
+            assert reservationState != null
+                : "Could not find reservation state for " + type.toString();
+            MethodNamingState<?> namingState =
+                namingStates.computeIfAbsent(
+                    type, ignore -> parentNamingState.createChild(reservationState));
+            DexClass holder = appView.definitionFor(type);
+            if (holder != null && strategy.allowMemberRenaming(holder)) {
+              futures.add(
+                  executorService.submit(() -> assignNamesToClassMethods(holder, namingState)));
+            }
+            for (DexType subType : appView.appInfo().allImmediateExtendsSubtypes(type)) {
+              nextLevel.put(subType, namingState);
+            }
+          });
+      ThreadUtils.awaitFutures(futures);
+      level = nextLevel;
+    }
+  }
+
+  private void assignNamesToClassMethods(DexClass holder, MethodNamingState<?> namingState) {
     // The names for direct methods should not contribute to the naming of methods in sub-types:
     // class A {
     //   public int foo() { ... }   --> a
@@ -209,17 +256,11 @@ class MethodNameMinifier {
     // }
     //
     // A simple way to ensure this is to process virtual methods first and then direct methods.
-    DexClass holder = appView.definitionFor(type);
-    if (holder != null && strategy.allowMemberRenaming(holder)) {
-      for (DexEncodedMethod method : holder.virtualMethodsSorted()) {
-        assignNameToMethod(holder, method, namingState);
-      }
-      for (DexEncodedMethod method : holder.directMethodsSorted()) {
-        assignNameToMethod(holder, method, namingState);
-      }
+    for (DexEncodedMethod method : holder.virtualMethodsSorted()) {
+      assignNameToMethod(holder, method, namingState);
     }
-    for (DexType subType : appView.appInfo().allImmediateExtendsSubtypes(type)) {
-      assignNamesToClassesMethods(subType, namingState);
+    for (DexEncodedMethod method : holder.directMethodsSorted()) {
+      assignNameToMethod(holder, method, namingState);
     }
   }
 
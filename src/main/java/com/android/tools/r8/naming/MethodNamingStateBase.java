@@ -5,8 +5,8 @@
 package com.android.tools.r8.naming;
 
 import com.android.tools.r8.graph.DexMethod;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 abstract class MethodNamingStateBase<KeyType, InternalState> {
@@ -16,7 +16,9 @@ abstract class MethodNamingStateBase<KeyType, InternalState> {
 
   MethodNamingStateBase(Function<DexMethod, KeyType> keyTransform) {
     this.keyTransform = keyTransform;
-    this.internalStates = new HashMap<>();
+    // Internal states of a naming state may be created lazily from subtypes that are named in
+    // parallel.
+    this.internalStates = new ConcurrentHashMap<>();
   }
 
   final InternalState getInternalState(DexMethod method) {
@@ -29,6 +29,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
@@ -42,7 +44,8 @@ public class Minifier {
     this.desugaredCallSites = desugaredCallSites;
   }
 
-  public NamingLens run(Timing timing) {
+  public NamingLens run(ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     assert appView.options().isMinifying();
     timing.begin("ComputeInterfaces");
     Set<DexClass> interfaces = new TreeSet<>((a, b) -> a.type.slowCompareTo(b.type));
@@ -56,7 +59,7 @@ public class Minifier {
             new MinificationPackageNamingStrategy(appView),
             // Use deterministic class order to make sure renaming is deterministic.
             appView.appInfo().classesWithDeterministicOrder());
-    ClassRenaming classRenaming = classNameMinifier.computeRenaming(timing);
+    ClassRenaming classRenaming = classNameMinifier.computeRenaming(executorService, timing);
     timing.end();
 
     assert new MinifiedRenaming(
@@ -67,7 +70,7 @@ public class Minifier {
     timing.begin("MinifyMethods");
     MethodRenaming methodRenaming =
         new MethodNameMinifier(appView, minifyMembers)
-            .computeRenaming(interfaces, desugaredCallSites, timing);
+            .computeRenaming(interfaces, desugaredCallSites, executorService, timing);
     timing.end();
 
     assert new MinifiedRenaming(appView, classRenaming, methodRenaming, FieldRenaming.empty())
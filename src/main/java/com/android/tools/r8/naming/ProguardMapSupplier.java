@@ -3,15 +3,16 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.naming;
 
+import com.android.tools.r8.StringConsumer;
 import com.android.tools.r8.Version;
 import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.VersionProperties;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Writer;
 
 public class ProguardMapSupplier {
@@ -35,13 +36,11 @@ public class ProguardMapSupplier {
     return new ProguardMapSupplier(false, null, namingLens, dexApplication, options);
   }
 
-  public static class ProguardMapAndId {
-    public final String map;
+  public static class ProguardMapId {
     public final String id;
 
-    ProguardMapAndId(String map, String id) {
-      assert map != null && id != null;
-      this.map = map;
+    ProguardMapId(String id) {
+      assert id != null;
       this.id = id;
     }
   }
@@ -65,17 +64,46 @@ public class ProguardMapSupplier {
   private final DexApplication application;
   private final Integer minApiLevel;
 
-  public ProguardMapAndId getProguardMapAndId() {
-    String body = getBody();
-    if (body == null || body.trim().length() == 0) {
-      return null;
-    }
+  /**
+   * Returns the id of the map, or null if the map is empty.
+   *
+   * <p>The id is computed from the content of the map, which is not retained. The map is instead
+   * generated again by {@link #writeProguardMap}, such that it is never held in memory as a whole.
+   */
+  public ProguardMapId getProguardMapId() {
     // Algorithm:
     // Hash of the non-whitespace codepoints of the input string.
-    Hasher hasher = Hashing.murmur3_32().newHasher();
-    body.codePoints().filter(c -> !Character.isWhitespace(c)).forEach(hasher::putInt);
-    String proguardMapId = hasher.hash().toString().substring(0, PG_MAP_ID_LENGTH);
+    ProguardMapIdHasher hasher = new ProguardMapIdHasher();
+    if (!writeBody(hasher) || hasher.isEmpty()) {
+      return null;
+    }
+    return new ProguardMapId(hasher.hash().substring(0, PG_MAP_ID_LENGTH));
+  }
+
+  /** Writes the map to the consumer, in chunks, and signals the consumer that it is finished. */
+  public void writeProguardMap(
+      ProguardMapId proguardMapId, StringConsumer consumer, Reporter reporter) {
+    Writer writer = new StringConsumerWriter(consumer, reporter);
+    writeProguardMap(proguardMapId, writer);
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+    }
+    ExceptionUtils.withFinishedResourceHandler(reporter, consumer);
+  }
+
+  public void writeProguardMap(ProguardMapId proguardMapId, Writer writer) {
+    try {
+      writer.write(getHeader(proguardMapId));
+      boolean hasBody = writeBody(writer);
+      assert hasBody;
+    } catch (IOException e) {
+      throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+    }
+  }
 
+  private String getHeader(ProguardMapId proguardMapId) {
     StringBuilder builder = new StringBuilder();
     builder.append(
         "# "
@@ -95,37 +123,155 @@ public class ProguardMapSupplier {
       builder.append(
           "# " + MARKER_KEY_COMPILER_HASH + ": " + VersionProperties.INSTANCE.getSha() + "\n");
     }
-    builder.append("# " + MARKER_KEY_PG_MAP_ID + ": " + proguardMapId + "\n");
+    builder.append("# " + MARKER_KEY_PG_MAP_ID + ": " + proguardMapId.id + "\n");
     // Turn off linting of the mapping file in some build systems.
     builder.append("# common_typos_disable" + "\n");
-    builder.append(body);
-
-    return new ProguardMapAndId(builder.toString(), proguardMapId);
+    return builder.toString();
   }
 
-  private String getBody() {
-    if (useClassNameMapper) {
-      assert classNameMapper != null;
-      return classNameMapper.toString();
-    }
-    assert namingLens != null && application != null;
-    // TODO(herhut): Should writing of the proguard-map file be split like this?
-    if (!namingLens.isIdentityLens()) {
-      StringBuilder map = new StringBuilder();
-      new MinifiedNameMapPrinter(application, namingLens).write(map);
-      return map.toString();
-    }
-    if (application.getProguardMap() != null) {
-      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-      Writer writer = new PrintWriter(bytes);
-      try {
+  // Returns false if there is no map.
+  private boolean writeBody(Writer writer) {
+    try {
+      if (useClassNameMapper) {
+        assert classNameMapper != null;
+        classNameMapper.write(writer);
+        return true;
+      }
+      assert namingLens != null && application != null;
+      // TODO(herhut): Should writing of the proguard-map file be split like this?
+      if (!namingLens.isIdentityLens()) {
+        StringBuilder map = new StringBuilder();
+        new MinifiedNameMapPrinter(application, namingLens).write(map);
+        writer.write(map.toString());
+        return true;
+      }
+      if (application.getProguardMap() != null) {
         application.getProguardMap().write(writer);
-        writer.flush();
-      } catch (IOException e) {
-        throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+        return true;
+      }
+      return false;
+    } catch (IOException e) {
+      throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+    }
+  }
+
+  // Writer that hashes the non-whitespace codepoints of the written characters.
+  static class ProguardMapIdHasher extends Writer {
+
+    private final Hasher hasher = Hashing.murmur3_32().newHasher();
+    private boolean isEmpty = true;
+    // High surrogate of a codepoint that is split across writes.
+    private char pendingHighSurrogate = 0;
+
+    private void add(char c) {
+      // Same as String.trim(), which considers all characters up to space as whitespace.
+      if (c > ' ') {
+        isEmpty = false;
+      }
+      if (pendingHighSurrogate != 0) {
+        char highSurrogate = pendingHighSurrogate;
+        pendingHighSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          addCodePoint(Character.toCodePoint(highSurrogate, c));
+          return;
+        }
+        addCodePoint(highSurrogate);
+      }
+      if (Character.isHighSurrogate(c)) {
+        pendingHighSurrogate = c;
+      } else {
+        addCodePoint(c);
+      }
+    }
+
+    private void addCodePoint(int codePoint) {
+      if (!Character.isWhitespace(codePoint)) {
+        hasher.putInt(codePoint);
+      }
+    }
+
+    boolean isEmpty() {
+      return isEmpty;
+    }
+
+    String hash() {
+      if (pendingHighSurrogate != 0) {
+        addCodePoint(pendingHighSurrogate);
+        pendingHighSurrogate = 0;
+      }
+      return hasher.hash().toString();
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        add(chars[i]);
+      }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        add(string.charAt(i));
+      }
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+
+  // Writer that forwards the written characters to a string consumer in chunks.
+  static class StringConsumerWriter extends Writer {
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private final StringConsumer consumer;
+    private final Reporter reporter;
+    private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+
+    StringConsumerWriter(StringConsumer consumer, Reporter reporter) {
+      this.consumer = consumer;
+      this.reporter = reporter;
+    }
+
+    private void flushIfFull() {
+      if (chunk.length() >= CHUNK_SIZE) {
+        // Do not split a surrogate pair across chunks.
+        int end = chunk.length();
+        if (Character.isHighSurrogate(chunk.charAt(end - 1))) {
+          end--;
+        }
+        ExceptionUtils.withConsumeResourceHandler(reporter, consumer, chunk.substring(0, end));
+        chunk.delete(0, end);
+      }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      chunk.append(chars, offset, length);
+      flushIfFull();
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      chunk.append(string, offset, offset + length);
+      flushIfFull();
+    }
+
+    @Override
+    public void flush() {
+      // Chunks are only forwarded when full, to keep the number of calls to the consumer down.
+    }
+
+    @Override
+    public void close() {
+      if (chunk.length() > 0) {
+        ExceptionUtils.withConsumeResourceHandler(reporter, consumer, chunk.toString());
+        chunk.setLength(0);
       }
-      return bytes.toString();
     }
-    return null;
   }
 }
@@ -19,9 +19,15 @@ import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Maps;
 import java.lang.reflect.GenericSignatureFormatError;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -43,40 +49,58 @@ public class GenericSignatureRewriter {
     this.reporter = appView.options().reporter;
   }
 
-  public void run(Iterable<? extends DexClass> classes) {
-    final GenericSignatureCollector genericSignatureCollector = new GenericSignatureCollector();
-    final GenericSignatureParser<DexType> genericSignatureParser =
-        new GenericSignatureParser<>(genericSignatureCollector);
+  public void run(Iterable<? extends DexClass> classes, ExecutorService executorService)
+      throws ExecutionException {
     // classes may not be the same as appInfo().classes() if applymapping is used on classpath
     // arguments. If that is the case, the ProguardMapMinifier will pass in all classes that is
     // either ProgramClass or has a mapping. This is then transitively called inside the
     // ClassNameMinifier.
+    // Warnings are collected per class and reported in the order of the classes once all tasks
+    // are done, so the output does not depend on the scheduling of the tasks.
+    List<Future<?>> futures = new ArrayList<>();
+    List<List<StringDiagnostic>> warningsPerClass = new ArrayList<>();
     for (DexClass clazz : classes) {
-      clazz.annotations =
-          rewriteGenericSignatures(
-              clazz.annotations,
-              genericSignatureParser::parseClassSignature,
-              genericSignatureCollector::getRenamedSignature,
-              (signature, e) -> parseError(clazz, clazz.getOrigin(), signature, e));
-      clazz.forEachField(
-          field ->
-              field.annotations =
-                  rewriteGenericSignatures(
-                      field.annotations,
-                      genericSignatureParser::parseFieldSignature,
-                      genericSignatureCollector::getRenamedSignature,
-                      (signature, e) -> parseError(field, clazz.getOrigin(), signature, e)));
-      clazz.forEachMethod(
-          method ->
-              method.annotations =
-                  rewriteGenericSignatures(
-                      method.annotations,
-                      genericSignatureParser::parseMethodSignature,
-                      genericSignatureCollector::getRenamedSignature,
-                      (signature, e) -> parseError(method, clazz.getOrigin(), signature, e)));
+      List<StringDiagnostic> warnings = new ArrayList<>();
+      warningsPerClass.add(warnings);
+      futures.add(executorService.submit(() -> rewriteClass(clazz, warnings)));
+    }
+    ThreadUtils.awaitFutures(futures);
+    for (List<StringDiagnostic> warnings : warningsPerClass) {
+      warnings.forEach(reporter::warning);
     }
   }
 
+  private void rewriteClass(DexClass clazz, List<StringDiagnostic> warnings) {
+    // The parser and the collector are stateful, so each class gets its own.
+    GenericSignatureCollector genericSignatureCollector = new GenericSignatureCollector(warnings);
+    GenericSignatureParser<DexType> genericSignatureParser =
+        new GenericSignatureParser<>(genericSignatureCollector);
+    clazz.annotations =
+        rewriteGenericSignatures(
+            clazz.annotations,
+            genericSignatureParser::parseClassSignature,
+            genericSignatureCollector::getRenamedSignature,
+            (signature, e) -> parseError(clazz, clazz.getOrigin(), signature, e, warnings));
+    clazz.forEachField(
+        field ->
+            field.annotations =
+                rewriteGenericSignatures(
+                    field.annotations,
+                    genericSignatureParser::parseFieldSignature,
+                    genericSignatureCollector::getRenamedSignature,
+                    (signature, e) ->
+                        parseError(field, clazz.getOrigin(), signature, e, warnings)));
+    clazz.forEachMethod(
+        method ->
+            method.annotations =
+                rewriteGenericSignatures(
+                    method.annotations,
+                    genericSignatureParser::parseMethodSignature,
+                    genericSignatureCollector::getRenamedSignature,
+                    (signature, e) ->
+                        parseError(method, clazz.getOrigin(), signature, e, warnings)));
+  }
+
   private DexAnnotationSet rewriteGenericSignatures(
       DexAnnotationSet annotations,
       Consumer<String> parser,
@@ -128,7 +152,11 @@ public class GenericSignatureRewriter {
   }
 
   private void parseError(
-      DexDefinition item, Origin origin, String signature, GenericSignatureFormatError e) {
+      DexDefinition item,
+      Origin origin,
+      String signature,
+      GenericSignatureFormatError e,
+      List<StringDiagnostic> warnings) {
     StringBuilder message = new StringBuilder("Invalid signature '");
     message.append(signature);
     message.append("' for ");
@@ -147,12 +175,17 @@ public class GenericSignatureRewriter {
     message.append("Signature is ignored and will not be present in the output.\n");
     message.append("Parser error: ");
     message.append(e.getMessage());
-    reporter.warning(new StringDiagnostic(message.toString(), origin));
+    warnings.add(new StringDiagnostic(message.toString(), origin));
   }
 
   private class GenericSignatureCollector implements GenericSignatureAction<DexType> {
+    private final List<StringDiagnostic> warnings;
     private StringBuilder renamedSignature;
 
+    private GenericSignatureCollector(List<StringDiagnostic> warnings) {
+      this.warnings = warnings;
+    }
+
     public String getRenamedSignature() {
       return renamedSignature.toString();
     }
@@ -204,7 +237,7 @@ public class GenericSignatureRewriter {
         if (innerClassPos < fullRenamedBinaryName.length()) {
           renamedSignature.append(fullRenamedBinaryName.substring(innerClassPos));
         } else {
-          reporter.warning(
+          warnings.add(
               new StringDiagnostic(
                   "Should have retained InnerClasses attribute of " + type + ".",
                   appView.appInfo().originFor(type)));
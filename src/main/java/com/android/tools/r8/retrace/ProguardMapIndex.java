@@ -0,0 +1,303 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the class sections of a mapping file, used to parse only the classes that occur in a
+ * stack trace.
+ *
+ * <p>The index is a binary file that maps each obfuscated class name to the offset and length of
+ * its section in the mapping file. It is built once by scanning the mapping file, and is memory
+ * mapped when loaded, so opening an index does not depend on the size of the mapping file. Class
+ * sections are read and parsed on the first lookup of the class.
+ *
+ * <p>The layout of the index is a header, a table of fixed size entries sorted by the UTF-8 bytes
+ * of the obfuscated class name, and a pool with the names:
+ *
+ * <pre>
+ *   header:  magic (int), version (int), mapping file size (long),
+ *            mapping file last modified time (long), number of entries (int)
+ *   entry:   name offset in pool (int), name length (int), section offset (long),
+ *            section length (int)
+ * </pre>
+ */
+class ProguardMapIndex implements Closeable {
+
+  private static final int MAGIC = 0x52384d49; // 'R8MI'
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+  private static final int ENTRY_SIZE = 4 + 4 + 8 + 4;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel mappingChannel;
+  private final MappedByteBuffer index;
+  private final int entryCount;
+  private final int poolStart;
+
+  private final Map<String, ClassNamingForNameMapper> classNamings = new HashMap<>();
+
+  private ProguardMapIndex(FileChannel mappingChannel, MappedByteBuffer index) {
+    this.mappingChannel = mappingChannel;
+    this.index = index;
+    this.entryCount = index.getInt(HEADER_SIZE - 4);
+    this.poolStart = HEADER_SIZE + entryCount * ENTRY_SIZE;
+  }
+
+  /** Loads the index of the mapping file, and (re)builds it first if it is missing or stale. */
+  static ProguardMapIndex loadOrBuild(Path mappingFile, Path indexFile) throws IOException {
+    if (!isUpToDate(mappingFile, indexFile)) {
+      build(mappingFile, indexFile);
+    }
+    FileChannel mappingChannel = FileChannel.open(mappingFile, StandardOpenOption.READ);
+    try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      return new ProguardMapIndex(
+          mappingChannel, indexChannel.map(MapMode.READ_ONLY, 0, indexChannel.size()));
+    } catch (IOException e) {
+      mappingChannel.close();
+      throw e;
+    }
+  }
+
+  private static boolean isUpToDate(Path mappingFile, Path indexFile) throws IOException {
+    if (!Files.exists(indexFile) || Files.size(indexFile) < HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      while (header.hasRemaining() && indexChannel.read(header) >= 0) {}
+    }
+    header.flip();
+    return header.getInt() == MAGIC
+        && header.getInt() == VERSION
+        && header.getLong() == Files.size(mappingFile)
+        && header.getLong() == Files.getLastModifiedTime(mappingFile).toMillis();
+  }
+
+  static void build(Path mappingFile, Path indexFile) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    try (InputStream in = Files.newInputStream(mappingFile)) {
+      // Scan the mapping file in bulk for line breaks. Only the class lines are copied out of the
+      // buffer and decoded, all other lines are skipped after looking at their first byte.
+      byte[] buffer = new byte[BUFFER_SIZE];
+      ByteArrayOutputStream classLine = new ByteArrayOutputStream();
+      boolean atLineStart = true;
+      boolean inClassLine = false;
+      long lineStart = 0;
+      long position = 0;
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        int i = 0;
+        while (i < read) {
+          if (atLineStart) {
+            atLineStart = false;
+            lineStart = position + i;
+            inClassLine = isClassLineStart(buffer[i]);
+          }
+          int end = indexOfLineBreak(buffer, i, read);
+          if (inClassLine) {
+            classLine.write(buffer, i, end - i);
+          }
+          if (end == read) {
+            break;
+          }
+          if (inClassLine) {
+            addEntry(entries, classLine.toByteArray(), lineStart);
+            classLine.reset();
+          }
+          atLineStart = true;
+          i = end + 1;
+        }
+        position += read;
+      }
+      if (inClassLine && !atLineStart) {
+        addEntry(entries, classLine.toByteArray(), lineStart);
+      }
+      if (!entries.isEmpty()) {
+        Entry last = entries.get(entries.size() - 1);
+        last.sectionLength = (int) (position - last.sectionOffset);
+      }
+    }
+    entries.sort(Comparator.comparing(entry -> entry.name, ProguardMapIndex::compareUnsigned));
+
+    // Write to a temporary file and move it into place, such that concurrent retrace processes
+    // never observe a partially written index.
+    Path temporary = Files.createTempFile(indexFile.toAbsolutePath().getParent(), "index", ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(temporary);
+          DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(Files.size(mappingFile));
+        data.writeLong(Files.getLastModifiedTime(mappingFile).toMillis());
+        data.writeInt(entries.size());
+        int nameOffset = 0;
+        for (Entry entry : entries) {
+          data.writeInt(nameOffset);
+          data.writeInt(entry.name.length);
+          data.writeLong(entry.sectionOffset);
+          data.writeInt(entry.sectionLength);
+          nameOffset += entry.name.length;
+        }
+        for (Entry entry : entries) {
+          data.write(entry.name);
+        }
+      }
+      Files.move(
+          temporary,
+          indexFile,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static void addEntry(List<Entry> entries, byte[] classLine, long offset) {
+    if (!entries.isEmpty()) {
+      Entry previous = entries.get(entries.size() - 1);
+      previous.sectionLength = (int) (offset - previous.sectionOffset);
+    }
+    entries.add(new Entry(getObfuscatedName(classLine), offset));
+  }
+
+  // Class lines are the only lines that are not indented, e.g., 'com.example.Foo -> a.a:'.
+  private static boolean isClassLineStart(byte first) {
+    return first != ' ' && first != '\t' && first != '#' && first != '\r' && first != '\n';
+  }
+
+  private static int indexOfLineBreak(byte[] buffer, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (buffer[i] == '\n') {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private static byte[] getObfuscatedName(byte[] line) {
+    String classLine = new String(line, StandardCharsets.UTF_8);
+    int arrow = classLine.indexOf("->");
+    int colon = classLine.lastIndexOf(':');
+    if (arrow < 0 || colon < arrow) {
+      throw new IllegalArgumentException("Unexpected class line in mapping file: " + classLine);
+    }
+    return classLine.substring(arrow + 2, colon).trim().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int compareUnsigned(byte[] a, byte[] b) {
+    for (int i = 0; i < Math.min(a.length, b.length); i++) {
+      int compare = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+      if (compare != 0) {
+        return compare;
+      }
+    }
+    return Integer.compare(a.length, b.length);
+  }
+
+  /** Returns the class naming for the obfuscated class name, or null if it is not mapped. */
+  ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    if (classNamings.containsKey(obfuscatedName)) {
+      return classNamings.get(obfuscatedName);
+    }
+    ClassNamingForNameMapper classNaming;
+    try {
+      classNaming = readClassNaming(obfuscatedName);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    classNamings.put(obfuscatedName, classNaming);
+    return classNaming;
+  }
+
+  private ClassNamingForNameMapper readClassNaming(String obfuscatedName) throws IOException {
+    int entry = findEntry(obfuscatedName.getBytes(StandardCharsets.UTF_8));
+    if (entry < 0) {
+      return null;
+    }
+    int entryOffset = HEADER_SIZE + entry * ENTRY_SIZE;
+    ByteBuffer section = ByteBuffer.allocate(index.getInt(entryOffset + 16));
+    long sectionOffset = index.getLong(entryOffset + 8);
+    while (section.hasRemaining()) {
+      if (mappingChannel.read(section, sectionOffset + section.position()) < 0) {
+        throw new IOException("Mapping file was truncated after it was indexed");
+      }
+    }
+    ClassNameMapper mapper =
+        ClassNameMapper.mapperFromString(new String(section.array(), StandardCharsets.UTF_8));
+    return mapper.getClassNaming(obfuscatedName);
+  }
+
+  private int findEntry(byte[] name) {
+    int low = 0;
+    int high = entryCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int compare = compareToEntryName(name, middle);
+      if (compare == 0) {
+        return middle;
+      } else if (compare < 0) {
+        high = middle - 1;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return -1;
+  }
+
+  private int compareToEntryName(byte[] name, int entry) {
+    int entryOffset = HEADER_SIZE + entry * ENTRY_SIZE;
+    int entryNameOffset = poolStart + index.getInt(entryOffset);
+    int entryNameLength = index.getInt(entryOffset + 4);
+    for (int i = 0; i < Math.min(name.length, entryNameLength); i++) {
+      int compare = Integer.compare(name[i] & 0xff, index.get(entryNameOffset + i) & 0xff);
+      if (compare != 0) {
+        return compare;
+      }
+    }
+    return Integer.compare(name.length, entryNameLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    mappingChannel.close();
+  }
+
+  private static class Entry {
+
+    private final byte[] name;
+    private final long sectionOffset;
+    private int sectionLength;
+
+    private Entry(byte[] name, long sectionOffset) {
+      this.name = name;
+      this.sectionOffset = sectionOffset;
+    }
+  }
+}
@@ -16,7 +16,10 @@ import com.android.tools.r8.utils.OptionsParsing;
 import com.android.tools.r8.utils.OptionsParsing.ParseContext;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -36,14 +39,22 @@ public class Retrace {
 
   public static final String USAGE_MESSAGE =
       StringUtils.lines(
-          "Usage: retrace <proguard-map> <stacktrace-file>",
-          "  where <proguard-map> is an r8 generated mapping file.");
+          "Usage: retrace [--index <index-file>] <proguard-map> [<stacktrace-file>]",
+          "  where <proguard-map> is an r8 generated mapping file.",
+          "  --index <index-file>  # Retrace using an index of <proguard-map>, which is created",
+          "                        # or updated when stale. Only the classes occurring in the",
+          "                        # stack trace are read. Lines are retraced as they are read.");
 
-  private static Builder parseArguments(String[] args, DiagnosticsHandler diagnosticsHandler) {
+  private static class CommandLineArguments {
+    private Path mappingPath;
+    private Path stackTracePath;
+    private Path indexPath;
+  }
+
+  private static CommandLineArguments parseArguments(
+      String[] args, DiagnosticsHandler diagnosticsHandler) {
     ParseContext context = new ParseContext(args);
-    Builder builder = RetraceCommand.builder(diagnosticsHandler);
-    boolean hasSetProguardMap = false;
-    boolean hasSetStackTrace = false;
+    CommandLineArguments arguments = new CommandLineArguments();
     while (context.head() != null) {
       Boolean help = OptionsParsing.tryParseBoolean(context, "--help");
       if (help != null) {
@@ -61,14 +72,17 @@ public class Retrace {
         diagnosticsHandler.error(new StringDiagnostic("Currently no support for --regex"));
         continue;
       }
-      if (!hasSetProguardMap) {
-        builder.setProguardMapProducer(getMappingSupplier(context.head(), diagnosticsHandler));
+      String index = OptionsParsing.tryParseSingle(context, "--index", null);
+      if (index != null) {
+        arguments.indexPath = Paths.get(index);
+        continue;
+      }
+      if (arguments.mappingPath == null) {
+        arguments.mappingPath = getMappingPath(context.head(), diagnosticsHandler);
         context.next();
-        hasSetProguardMap = true;
-      } else if (!hasSetStackTrace) {
-        builder.setStackTrace(getStackTraceFromFile(context.head(), diagnosticsHandler));
+      } else if (arguments.stackTracePath == null) {
+        arguments.stackTracePath = Paths.get(context.head());
         context.next();
-        hasSetStackTrace = true;
       } else {
         diagnosticsHandler.error(
             new StringDiagnostic(
@@ -77,31 +91,44 @@ public class Retrace {
         throw new RetraceAbortException();
       }
     }
-    if (!hasSetProguardMap) {
+    if (arguments.mappingPath == null) {
       diagnosticsHandler.error(new StringDiagnostic("Mapping file not specified"));
       throw new RetraceAbortException();
     }
-    if (!hasSetStackTrace) {
-      builder.setStackTrace(getStackTraceFromStandardInput());
-    }
-    return builder;
+    return arguments;
   }
 
-  private static ProguardMapProducer getMappingSupplier(
-      String mappingPath, DiagnosticsHandler diagnosticsHandler) {
+  private static Path getMappingPath(String mappingPath, DiagnosticsHandler diagnosticsHandler) {
     Path path = Paths.get(mappingPath);
     if (!Files.exists(path)) {
       diagnosticsHandler.error(
           new StringDiagnostic(String.format("Could not find mapping file '%s'.", mappingPath)));
       throw new RetraceAbortException();
     }
+    return path;
+  }
+
+  private static ProguardMapProducer getMappingSupplier(Path path) {
     return () -> new String(Files.readAllBytes(path));
   }
 
   private static List<String> getStackTraceFromFile(
-      String stackTracePath, DiagnosticsHandler diagnostics) {
+      Path stackTracePath, DiagnosticsHandler diagnostics) {
     try {
-      return Files.readAllLines(Paths.get(stackTracePath));
+      return Files.readAllLines(stackTracePath);
+    } catch (IOException e) {
+      diagnostics.error(new StringDiagnostic("Could not find stack trace file: " + stackTracePath));
+      throw new RetraceAbortException();
+    }
+  }
+
+  private static BufferedReader getStackTraceReader(
+      Path stackTracePath, DiagnosticsHandler diagnostics) {
+    if (stackTracePath == null) {
+      return new BufferedReader(new InputStreamReader(System.in));
+    }
+    try {
+      return Files.newBufferedReader(stackTracePath);
     } catch (IOException e) {
       diagnostics.error(new StringDiagnostic("Could not find stack trace file: " + stackTracePath));
       throw new RetraceAbortException();
@@ -118,8 +145,8 @@ public class Retrace {
       ClassNameMapper classNameMapper =
           ClassNameMapper.mapperFromString(command.proguardMapProducer.get());
       RetraceResult result =
-          new RetraceCore(classNameMapper, command.stackTrace, command.diagnosticsHandler)
-              .retrace();
+          new RetraceCore(classNameMapper::getClassNaming, command.diagnosticsHandler)
+              .retrace(command.stackTrace);
       command.retracedStackTraceConsumer.accept(result.toListOfStrings());
     } catch (IOException ex) {
       command.diagnosticsHandler.error(
@@ -128,19 +155,53 @@ public class Retrace {
     }
   }
 
+  /**
+   * Retraces the stack trace line by line using an index of the mapping file, such that only the
+   * class sections of the mapping file that are referenced from the stack trace are parsed, and
+   * each retraced line is printed as soon as it has been read.
+   */
+  private static void runWithIndex(
+      CommandLineArguments arguments, DiagnosticsHandler diagnosticsHandler) {
+    try (ProguardMapIndex index =
+            ProguardMapIndex.loadOrBuild(arguments.mappingPath, arguments.indexPath);
+        BufferedReader reader = getStackTraceReader(arguments.stackTracePath, diagnosticsHandler)) {
+      RetraceCore retraceCore = new RetraceCore(index::getClassNaming, diagnosticsHandler);
+      int lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        System.out.print(StringUtils.lines(retraceCore.retraceLine(++lineNumber, line)));
+        System.out.flush();
+      }
+    } catch (IOException | UncheckedIOException ex) {
+      diagnosticsHandler.error(new StringDiagnostic("Could not retrace: " + ex.getMessage()));
+      throw new RetraceAbortException();
+    }
+  }
+
   static void run(String[] args) {
     DiagnosticsHandler diagnosticsHandler = new DiagnosticsHandler() {};
-    Builder builder = parseArguments(args, diagnosticsHandler);
-    if (builder == null) {
+    CommandLineArguments arguments = parseArguments(args, diagnosticsHandler);
+    if (arguments == null) {
       // --help was an argument to list
       assert Arrays.asList(args).contains("--help");
       System.out.print(USAGE_MESSAGE);
       return;
     }
+    if (arguments.indexPath != null) {
+      runWithIndex(arguments, diagnosticsHandler);
+      return;
+    }
+    Builder builder = RetraceCommand.builder(diagnosticsHandler);
+    builder.setProguardMapProducer(getMappingSupplier(arguments.mappingPath));
+    builder.setStackTrace(
+        arguments.stackTracePath == null
+            ? getStackTraceFromStandardInput()
+            : getStackTraceFromFile(arguments.stackTracePath, diagnosticsHandler));
     builder.setRetracedStackTraceConsumer(
         retraced -> System.out.print(StringUtils.lines(retraced)));
     run(builder.build());
   }
+
   /**
    * The main entry point for running a legacy compatible retrace from the command line.
    *
@@ -7,7 +7,6 @@ package com.android.tools.r8.retrace;
 import static com.google.common.base.Predicates.not;
 
 import com.android.tools.r8.DiagnosticsHandler;
-import com.android.tools.r8.naming.ClassNameMapper;
 import com.android.tools.r8.naming.ClassNamingForNameMapper;
 import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
 import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRangesOfName;
@@ -20,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 public final class RetraceCore {
@@ -100,38 +100,40 @@ public final class RetraceCore {
     }
   }
 
-  private final ClassNameMapper classNameMapper;
-  private final List<String> stackTrace;
+  private final Function<String, ClassNamingForNameMapper> classNamings;
   private final DiagnosticsHandler diagnosticsHandler;
 
   RetraceCore(
-      ClassNameMapper classNameMapper,
-      List<String> stackTrace,
+      Function<String, ClassNamingForNameMapper> classNamings,
       DiagnosticsHandler diagnosticsHandler) {
-    this.classNameMapper = classNameMapper;
-    this.stackTrace = stackTrace;
+    this.classNamings = classNamings;
     this.diagnosticsHandler = diagnosticsHandler;
   }
 
-  public RetraceResult retrace() {
-    ArrayList<StackTraceNode> result = new ArrayList<>();
-    retraceLine(stackTrace, 0, result);
+  public RetraceResult retrace(List<String> stackTrace) {
+    List<StackTraceNode> result = new ArrayList<>(stackTrace.size());
+    for (int i = 0; i < stackTrace.size(); i++) {
+      result.add(retraceNode(i + 1, stackTrace.get(i)));
+    }
     return new RetraceResult(result);
   }
 
-  private void retraceLine(List<String> stackTrace, int index, List<StackTraceNode> result) {
-    if (stackTrace.size() <= index) {
-      return;
-    }
-    StackTraceLine stackTraceLine = parseLine(index + 1, stackTrace.get(index));
-    List<StackTraceLine> retraced = stackTraceLine.retrace(classNameMapper);
-    StackTraceNode node = new StackTraceNode(retraced);
-    result.add(node);
-    retraceLine(stackTrace, index + 1, result);
+  /**
+   * Retraces a single line of a stack trace, such that stack traces can be retraced while they are
+   * being read. A line can retrace to multiple lines if it has inlined frames or is ambiguous.
+   */
+  List<String> retraceLine(int lineNumber, String line) {
+    List<String> strings = new ArrayList<>();
+    retraceNode(lineNumber, line).append(strings);
+    return strings;
+  }
+
+  private StackTraceNode retraceNode(int lineNumber, String line) {
+    return new StackTraceNode(parseLine(lineNumber, line).retrace(classNamings));
   }
 
   abstract static class StackTraceLine {
-    abstract List<StackTraceLine> retrace(ClassNameMapper mapper);
+    abstract List<StackTraceLine> retrace(Function<String, ClassNamingForNameMapper> classNamings);
 
     static int firstNonWhiteSpaceCharacterFromIndex(String line, int index) {
       return firstFromIndex(line, index, not(Character::isWhitespace));
@@ -223,8 +225,8 @@ public final class RetraceCore {
     }
 
     @Override
-    List<StackTraceLine> retrace(ClassNameMapper mapper) {
-      ClassNamingForNameMapper classNaming = mapper.getClassNaming(exceptionClass);
+    List<StackTraceLine> retrace(Function<String, ClassNamingForNameMapper> classNamings) {
+      ClassNamingForNameMapper classNaming = classNamings.apply(exceptionClass);
       String retracedExceptionClass = exceptionClass;
       if (classNaming != null) {
         retracedExceptionClass = classNaming.originalName;
@@ -342,8 +344,8 @@ public final class RetraceCore {
     }
 
     @Override
-    List<StackTraceLine> retrace(ClassNameMapper mapper) {
-      ClassNamingForNameMapper classNaming = mapper.getClassNaming(clazz);
+    List<StackTraceLine> retrace(Function<String, ClassNamingForNameMapper> classNamings) {
+      ClassNamingForNameMapper classNaming = classNamings.apply(clazz);
       List<StackTraceLine> lines = new ArrayList<>();
       if (classNaming == null) {
         lines.add(
@@ -501,7 +503,7 @@ public final class RetraceCore {
     }
 
     @Override
-    List<StackTraceLine> retrace(ClassNameMapper mapper) {
+    List<StackTraceLine> retrace(Function<String, ClassNamingForNameMapper> classNamings) {
       return ImmutableList.of(new MoreLine(line));
     }
 
@@ -519,7 +521,7 @@ public final class RetraceCore {
     }
 
     @Override
-    List<StackTraceLine> retrace(ClassNameMapper mapper) {
+    List<StackTraceLine> retrace(Function<String, ClassNamingForNameMapper> classNamings) {
       return ImmutableList.of(new UnknownLine(line));
     }
 
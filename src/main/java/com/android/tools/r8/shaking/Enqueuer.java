@@ -41,6 +41,7 @@ import com.android.tools.r8.graph.DexMethodHandle;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexProto;
 import com.android.tools.r8.graph.DexReference;
+import com.android.tools.r8.graph.DexReferenceSet;
 import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.FieldAccessInfoCollectionImpl;
@@ -70,6 +71,7 @@ import com.android.tools.r8.shaking.ScopedDexMethodSet.AddMethodIfMoreVisibleRes
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.SetUtils;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.base.Equivalence.Wrapper;
 import com.google.common.collect.ImmutableList;
@@ -82,6 +84,7 @@ import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import java.lang.reflect.InvocationHandler;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -96,6 +99,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
@@ -160,7 +164,7 @@ public class Enqueuer {
       Sets.newIdentityHashSet();
   private final Set<DexCallSite> callSites = Sets.newIdentityHashSet();
 
-  private final Set<DexReference> identifierNameStrings = Sets.newIdentityHashSet();
+  private final Set<DexReference> identifierNameStrings = new DexReferenceSet<>();
 
   // Canonicalization of external graph-nodes and edge info.
   private final Map<DexItem, AnnotationGraphNode> annotationNodes = new IdentityHashMap<>();
@@ -174,7 +178,7 @@ public class Enqueuer {
    * Set of method signatures used in invoke-super instructions that either cannot be resolved or
    * resolve to a private method (leading to an IllegalAccessError).
    */
-  private final Set<DexMethod> brokenSuperInvokes = Sets.newIdentityHashSet();
+  private final Set<DexMethod> brokenSuperInvokes = new DexReferenceSet<>();
   /**
    * This map keeps a view of all virtual methods that are reachable from virtual invokes. A method
    * is reachable even if no live subtypes exist, so this is not sufficient for inclusion in the
@@ -232,19 +236,19 @@ public class Enqueuer {
   /**
    * Set of program methods that are used as the bootstrap method for an invoke-dynamic instruction.
    */
-  private final Set<DexMethod> bootstrapMethods = Sets.newIdentityHashSet();
+  private final Set<DexMethod> bootstrapMethods = new DexReferenceSet<>();
   /**
    * Set of direct methods that are the immediate target of an invoke-dynamic.
    */
-  private final Set<DexMethod> methodsTargetedByInvokeDynamic = Sets.newIdentityHashSet();
+  private final Set<DexMethod> methodsTargetedByInvokeDynamic = new DexReferenceSet<>();
   /**
    * Set of direct lambda methods that are the immediate target of an invoke-dynamic.
    */
-  private final Set<DexMethod> lambdaMethodsTargetedByInvokeDynamic = Sets.newIdentityHashSet();
+  private final Set<DexMethod> lambdaMethodsTargetedByInvokeDynamic = new DexReferenceSet<>();
   /**
    * Set of virtual methods that are the immediate target of an invoke-direct.
    * */
-  private final Set<DexMethod> virtualMethodsTargetedByInvokeDirect = Sets.newIdentityHashSet();
+  private final Set<DexMethod> virtualMethodsTargetedByInvokeDirect = new DexReferenceSet<>();
   /**
    * Set of methods that belong to live classes and can be reached by invokes. These need to be
    * kept.
@@ -285,24 +289,24 @@ public class Enqueuer {
   /**
    * A cache for DexMethod that have been marked reachable.
    */
-  private final Set<DexMethod> virtualTargetsMarkedAsReachable = Sets.newIdentityHashSet();
+  private final Set<DexMethod> virtualTargetsMarkedAsReachable = new DexReferenceSet<>();
 
   /**
    * A set of references we have reported missing to dedupe warnings.
    */
-  private final Set<DexReference> reportedMissing = Sets.newIdentityHashSet();
+  private final Set<DexReference> reportedMissing = new DexReferenceSet<>();
 
   /**
    * A set of references that we are keeping due to keep rules. This may differ from the root set
    * due to dependent keep rules.
    */
-  private final Set<DexReference> pinnedItems = Sets.newIdentityHashSet();
+  private final Set<DexReference> pinnedItems = new DexReferenceSet<>();
 
   /**
    * A set of seen const-class references that both serve as an initial lock-candidate set and will
    * prevent statically merging the classes referenced.
    */
-  private final Set<DexType> constClassReferences = Sets.newIdentityHashSet();
+  private final Set<DexType> constClassReferences = new DexReferenceSet<>();
 
   /**
    * A map from classes to annotations that need to be processed should the classes ever become
@@ -318,6 +322,9 @@ public class Enqueuer {
   /** Map of active if rules to speed up aapt2 generated keep rules. */
   private Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> activeIfRules;
 
+  /** Index of the program classes used to find the candidate classes of the -if rules. */
+  private ProgramClassIndex programClassIndex;
+
   /**
    * A cache of ScopedDexMethodSet for each live type used for determining that virtual methods that
    * cannot be removed because they are widening access for another virtual method defined earlier
@@ -2211,6 +2218,28 @@ public class Enqueuer {
     return result;
   }
 
+  // Returns the classes that became live or got new live or targeted members since the last call.
+  private Set<DexProgramClass> takeClassesWithNewLiveItems() {
+    Set<DexProgramClass> classes = new LinkedHashSet<>(liveTypes.takeNewItems());
+    for (DexEncodedField field : liveFields.takeNewItems()) {
+      addProgramClassIfNotNull(field.field.holder, classes);
+    }
+    for (DexEncodedMethod method : liveMethods.takeNewItems()) {
+      addProgramClassIfNotNull(method.method.holder, classes);
+    }
+    for (DexEncodedMethod method : targetedMethods.takeNewItems()) {
+      addProgramClassIfNotNull(method.method.holder, classes);
+    }
+    return classes;
+  }
+
+  private void addProgramClassIfNotNull(DexType type, Set<DexProgramClass> classes) {
+    DexProgramClass clazz = getProgramClassOrNull(type);
+    if (clazz != null) {
+      classes.add(clazz);
+    }
+  }
+
   private void trace(ExecutorService executorService, Timing timing) throws ExecutionException {
     timing.begin("Grow the tree.");
     try {
@@ -2247,7 +2276,11 @@ public class Enqueuer {
               markFieldAsKept((DexEncodedField) action.target, action.reason);
               break;
             case MARK_METHOD_LIVE:
-              markMethodAsLive(((DexEncodedMethod) action.target), action.reason);
+              DexEncodedMethod method = (DexEncodedMethod) action.target;
+              if (EnqueuerWorklist.hasUnparsedCode(method)) {
+                parseCodeOfPendingLiveMethods(method, executorService);
+              }
+              markMethodAsLive(method, action.reason);
               break;
             default:
               throw new IllegalArgumentException("" + action.kind);
@@ -2261,6 +2294,10 @@ public class Enqueuer {
         if (numOfLiveItemsAfterProcessing > numOfLiveItems) {
           // Build the mapping of active if rules. We use a single collection of if-rules to allow
           // removing if rules that have a constant sequent keep rule when they materialize.
+          // The first evaluation considers all live classes. Later evaluations only consider the
+          // classes that became live or got new live members since the previous evaluation, as
+          // the outcome for all other classes cannot have changed.
+          Set<DexProgramClass> classesWithNewLiveItems = null;
           if (activeIfRules == null) {
             activeIfRules = new HashMap<>();
             IfRuleClassPartEquivalence equivalence = new IfRuleClassPartEquivalence();
@@ -2268,8 +2305,17 @@ public class Enqueuer {
               Wrapper<ProguardIfRule> wrap = equivalence.wrap(ifRule);
               activeIfRules.computeIfAbsent(wrap, ignore -> new LinkedHashSet<>()).add(ifRule);
             }
+            liveTypes.trackNewItems();
+            liveFields.trackNewItems();
+            liveMethods.trackNewItems();
+            targetedMethods.trackNewItems();
+          } else {
+            classesWithNewLiveItems = takeClassesWithNewLiveItems();
           }
-          RootSetBuilder consequentSetBuilder = new RootSetBuilder(appView, null);
+          if (programClassIndex == null) {
+            programClassIndex = new ProgramClassIndex(appView.appInfo().classes());
+          }
+          RootSetBuilder consequentSetBuilder = new RootSetBuilder(appView, programClassIndex);
           IfRuleEvaluator ifRuleEvaluator =
               new IfRuleEvaluator(
                   appView,
@@ -2281,7 +2327,7 @@ public class Enqueuer {
                   mode,
                   consequentSetBuilder,
                   targetedMethods.getItems());
-          ConsequentRootSet consequentRootSet = ifRuleEvaluator.run();
+          ConsequentRootSet consequentRootSet = ifRuleEvaluator.run(classesWithNewLiveItems);
           // TODO(b/132600955): This modifies the root set. Should the consequent be persistent?
           rootSet.addConsequentRootSet(consequentRootSet);
           enqueueRootItems(consequentRootSet.noShrinking);
@@ -2448,6 +2494,35 @@ public class Enqueuer {
     return false;
   }
 
+  /**
+   * Parses the lazily loaded code of the given method and of all other methods that are pending
+   * to become live.
+   *
+   * <p>Marking a method as live must happen on the tracing thread, but parsing its code does not
+   * depend on the state of the enqueuer. The code of all methods of a class is parsed at once, so
+   * each class is parsed by a single task. The worklist records the pending methods with unparsed
+   * code as they are enqueued, so each of them is only inspected once.
+   */
+  private void parseCodeOfPendingLiveMethods(
+      DexEncodedMethod method, ExecutorService executorService) throws ExecutionException {
+    Map<DexType, DexEncodedMethod> methodsToParse = new IdentityHashMap<>();
+    methodsToParse.put(method.method.holder, method);
+    for (DexEncodedMethod target : workList.takePendingUnparsedMethods()) {
+      if (EnqueuerWorklist.hasUnparsedCode(target)) {
+        methodsToParse.putIfAbsent(target.method.holder, target);
+      }
+    }
+    if (methodsToParse.size() == 1) {
+      method.getCode().asCfCode();
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>(methodsToParse.size());
+    for (DexEncodedMethod methodToParse : methodsToParse.values()) {
+      futures.add(executorService.submit(() -> methodToParse.getCode().asCfCode()));
+    }
+    ThreadUtils.awaitFutures(futures);
+  }
+
   private void markMethodAsLive(DexEncodedMethod method, KeepReason reason) {
     assert liveMethods.contains(method);
 
@@ -2882,9 +2957,30 @@ public class Enqueuer {
       this.register = register;
     }
 
+    // The items added since the last call to takeNewItems(), or null if these are not tracked.
+    private List<T> newItems;
+
     boolean add(T item, KeepReason reason) {
       register.accept(item, reason);
-      return items.add(item);
+      if (items.add(item)) {
+        if (newItems != null) {
+          newItems.add(item);
+        }
+        return true;
+      }
+      return false;
+    }
+
+    void trackNewItems() {
+      assert newItems == null;
+      newItems = new ArrayList<>();
+    }
+
+    List<T> takeNewItems() {
+      assert newItems != null;
+      List<T> result = newItems;
+      newItems = new ArrayList<>();
+      return result;
     }
 
     boolean contains(T item) {
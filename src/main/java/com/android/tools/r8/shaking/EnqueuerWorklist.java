@@ -5,12 +5,15 @@
 package com.android.tools.r8.shaking;
 
 import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexEncodedField;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexItem;
 import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.function.BiPredicate;
 
@@ -46,6 +49,9 @@ public class EnqueuerWorklist {
   private final AppView<?> appView;
   private final Queue<Action> queue = new ArrayDeque<>();
 
+  // Targets of enqueued MARK_METHOD_LIVE actions whose code was not yet parsed when enqueued.
+  private List<DexEncodedMethod> pendingUnparsedMethods = new ArrayList<>();
+
   private final boolean restrictToProguardCompatibilityRules;
 
   private EnqueuerWorklist(AppView<?> appView, boolean restrictToProguardCompatibilityRules) {
@@ -69,6 +75,31 @@ public class EnqueuerWorklist {
     return queue.poll();
   }
 
+  static boolean hasUnparsedCode(DexEncodedMethod method) {
+    Code code = method.getCode();
+    return code != null && code.isLazyCfCode() && !code.asLazyCfCode().isParsed();
+  }
+
+  /**
+   * Returns the targets of the MARK_METHOD_LIVE actions that had unparsed code when they were
+   * enqueued since the previous call. Some of them may have been parsed in the meantime.
+   */
+  List<DexEncodedMethod> takePendingUnparsedMethods() {
+    List<DexEncodedMethod> result = pendingUnparsedMethods;
+    pendingUnparsedMethods = new ArrayList<>();
+    return result;
+  }
+
+  private void add(Action action) {
+    if (action.kind == Action.Kind.MARK_METHOD_LIVE) {
+      DexEncodedMethod method = (DexEncodedMethod) action.target;
+      if (hasUnparsedCode(method)) {
+        pendingUnparsedMethods.add(method);
+      }
+    }
+    queue.add(action);
+  }
+
   public void transferTo(
       EnqueuerWorklist worklist, BiPredicate<DexEncodedMethod, KeepReason> filter) {
     while (!queue.isEmpty()) {
@@ -79,8 +110,9 @@ public class EnqueuerWorklist {
           continue;
         }
       }
-      worklist.queue.add(action);
+      worklist.add(action);
     }
+    pendingUnparsedMethods.clear();
   }
 
   void enqueueMarkReachableDirectAction(DexMethod method, KeepReason reason) {
@@ -119,7 +151,7 @@ public class EnqueuerWorklist {
       DexProgramClass clazz, DexEncodedMethod method, KeepReason reason) {
     assert !restrictToProguardCompatibilityRules || reason.isDueToProguardCompatibility();
     assert method.method.holder == clazz.type;
-    queue.add(new Action(Action.Kind.MARK_METHOD_LIVE, method, null, reason));
+    add(new Action(Action.Kind.MARK_METHOD_LIVE, method, null, reason));
   }
 
   void enqueueMarkMethodKeptAction(DexEncodedMethod method, KeepReason reason) {
@@ -65,7 +65,14 @@ public class IfRuleEvaluator {
     this.targetedMethods = targetedMethods;
   }
 
-  public ConsequentRootSet run() throws ExecutionException {
+  /**
+   * Evaluates the -if rules and returns the items that are kept by the rules that match.
+   *
+   * @param classesWithNewLiveItems the classes that became live or got new live members since the
+   *     -if rules were last evaluated, or null if all live classes should be considered.
+   */
+  public ConsequentRootSet run(Set<DexProgramClass> classesWithNewLiveItems)
+      throws ExecutionException {
     appView.appInfo().app().timing.begin("Find consequent items for -if rules...");
     try {
       if (ifRules != null && !ifRules.isEmpty()) {
@@ -78,8 +85,12 @@ public class IfRuleEvaluator {
           // Depending on which types that trigger the -if rule, the application of the subsequent
           // -keep rule may vary (due to back references). So, we need to try all pairs of -if
           // rule and live types.
-          for (DexProgramClass clazz :
-              ifRule.relevantCandidatesForRule(appView, appView.appInfo().classes())) {
+          Iterable<DexProgramClass> candidates =
+              classesWithNewLiveItems != null
+                  ? classesWithNewLiveItems
+                  : ifRule.relevantCandidatesForRule(
+                      appView, rootSetBuilder.getProgramClassIndex());
+          for (DexProgramClass clazz : candidates) {
             if (!isEffectivelyLive(clazz)) {
               continue;
             }
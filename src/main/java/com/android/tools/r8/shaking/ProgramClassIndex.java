@@ -0,0 +1,140 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexAnnotation;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the program classes for finding the classes that a rule may apply to, without matching
+ * every program class against the rule.
+ *
+ * <p>The classes are indexed by their source name and by the types of their annotations. The
+ * classes whose names start with a given prefix, e.g., the prefix 'com.example.' of the class name
+ * pattern 'com.example.**', form a range of the sorted names, which is found by binary search. The
+ * candidates for a rule are always returned in the order of the indexed classes.
+ */
+class ProgramClassIndex {
+
+  private final List<DexProgramClass> classes;
+
+  // The source names of the classes in sorted order, and the index of each name in `classes`.
+  private final String[] sortedNames;
+  private final int[] sortedNameIndices;
+
+  // The indices in `classes` of the classes that have an annotation of a given type.
+  private final Map<DexType, IntList> classesByAnnotation = new IdentityHashMap<>();
+
+  ProgramClassIndex(Iterable<DexProgramClass> classes) {
+    this.classes = ImmutableList.copyOf(classes);
+    Integer[] order = new Integer[this.classes.size()];
+    String[] names = new String[this.classes.size()];
+    for (int i = 0; i < this.classes.size(); i++) {
+      DexProgramClass clazz = this.classes.get(i);
+      order[i] = i;
+      names[i] = clazz.type.toSourceString();
+      for (DexAnnotation annotation : clazz.annotations.annotations) {
+        IntList indices =
+            classesByAnnotation.computeIfAbsent(
+                annotation.annotation.type, k -> new IntArrayList());
+        if (indices.isEmpty() || indices.getInt(indices.size() - 1) != i) {
+          indices.add(i);
+        }
+      }
+    }
+    Arrays.sort(order, Comparator.comparing(i -> names[i]));
+    sortedNames = new String[order.length];
+    sortedNameIndices = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedNames[i] = names[order[i]];
+      sortedNameIndices[i] = order[i];
+    }
+  }
+
+  List<DexProgramClass> getClasses() {
+    return classes;
+  }
+
+  /**
+   * Returns the classes that may match the class names and the class annotation of the rule. All
+   * other classes are guaranteed not to match the rule.
+   */
+  List<DexProgramClass> getCandidates(ProguardConfigurationRule rule) {
+    int[] candidates = null;
+    ProguardTypeMatcher classAnnotation = rule.getClassAnnotation();
+    if (classAnnotation != null && classAnnotation.hasSpecificType()) {
+      IntList annotated = classesByAnnotation.get(classAnnotation.getSpecificType());
+      candidates = annotated == null ? new int[0] : annotated.toIntArray();
+    }
+    List<String> prefixes = rule.getClassNames().getClassNamePrefixes();
+    if (prefixes.stream().noneMatch(String::isEmpty)) {
+      int[] named = getClassesWithNamePrefixes(prefixes);
+      candidates = candidates == null ? named : intersect(candidates, named);
+    }
+    if (candidates == null) {
+      return classes;
+    }
+    List<DexProgramClass> result = new ArrayList<>(candidates.length);
+    for (int index : candidates) {
+      result.add(classes.get(index));
+    }
+    return result;
+  }
+
+  // Returns the sorted indices of the classes whose name start with one of the prefixes.
+  private int[] getClassesWithNamePrefixes(List<String> prefixes) {
+    IntList indices = new IntArrayList();
+    for (String prefix : prefixes) {
+      int position = Arrays.binarySearch(sortedNames, prefix);
+      if (position < 0) {
+        position = -position - 1;
+      }
+      while (position < sortedNames.length && sortedNames[position].startsWith(prefix)) {
+        indices.add(sortedNameIndices[position]);
+        position++;
+      }
+    }
+    int[] result = indices.toIntArray();
+    Arrays.sort(result);
+    if (prefixes.size() == 1) {
+      return result;
+    }
+    // Remove the duplicates that are due to overlapping prefixes.
+    int size = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (size == 0 || result[size - 1] != result[i]) {
+        result[size++] = result[i];
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int[] intersect(int[] sortedA, int[] sortedB) {
+    IntList result = new IntArrayList(Math.min(sortedA.length, sortedB.length));
+    int i = 0;
+    int j = 0;
+    while (i < sortedA.length && j < sortedB.length) {
+      if (sortedA[i] < sortedB[j]) {
+        i++;
+      } else if (sortedA[i] > sortedB[j]) {
+        j++;
+      } else {
+        result.add(sortedA[i]);
+        i++;
+        j++;
+      }
+    }
+    return result.toIntArray();
+  }
+}
@@ -83,6 +83,9 @@ public abstract class ProguardClassNameList {
 
   public abstract boolean matches(DexType type);
 
+  // Returns source name prefixes such that every type matched by this list has one of them.
+  public abstract List<String> getClassNamePrefixes();
+
   protected Iterable<ProguardWildcard> getWildcards() {
     return Collections::emptyIterator;
   }
@@ -131,6 +134,11 @@ public abstract class ProguardClassNameList {
       return false;
     }
 
+    @Override
+    public List<String> getClassNamePrefixes() {
+      return Collections.emptyList();
+    }
+
     @Override
     public void forEachTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
     }
@@ -182,6 +190,11 @@ public abstract class ProguardClassNameList {
       return className.matches(type);
     }
 
+    @Override
+    public List<String> getClassNamePrefixes() {
+      return Collections.singletonList(className.getClassNamePrefix());
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return className.getWildcards();
@@ -254,6 +267,13 @@ public abstract class ProguardClassNameList {
       return classNames.stream().anyMatch(name -> name.matches(type));
     }
 
+    @Override
+    public List<String> getClassNamePrefixes() {
+      return classNames.stream()
+          .map(ProguardTypeMatcher::getClassNamePrefix)
+          .collect(Collectors.toList());
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.stream()
@@ -337,6 +357,15 @@ public abstract class ProguardClassNameList {
       return false;
     }
 
+    @Override
+    public List<String> getClassNamePrefixes() {
+      // Only the positive class names can match a type.
+      return classNames.object2BooleanEntrySet().stream()
+          .filter(entry -> !entry.getBooleanValue())
+          .map(entry -> entry.getKey().getClassNamePrefix())
+          .collect(Collectors.toList());
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.keySet().stream()
@@ -50,7 +50,7 @@ public abstract class ProguardConfigurationRule extends ProguardClassSpecificati
   }
 
   Iterable<DexProgramClass> relevantCandidatesForRule(
-      AppView<? extends AppInfoWithSubtyping> appView, Iterable<DexProgramClass> defaultValue) {
+      AppView<? extends AppInfoWithSubtyping> appView, ProgramClassIndex programClassIndex) {
     if (hasInheritanceClassName() && getInheritanceClassName().hasSpecificType()) {
       DexType type = getInheritanceClassName().getSpecificType();
       if (appView.verticallyMergedClasses() != null
@@ -65,7 +65,11 @@ public abstract class ProguardConfigurationRule extends ProguardClassSpecificati
         return DexProgramClass.asProgramClasses(appView.appInfo().subtypes(type), appView);
       }
     }
-    return defaultValue;
+    if (appView.verticallyMergedClasses() != null) {
+      // The index does not know about the names and annotations of the merged classes.
+      return programClassIndex.getClasses();
+    }
+    return programClassIndex.getCandidates(this);
   }
 
   abstract String typeString();
@@ -29,64 +29,6 @@ public abstract class ProguardNameMatcher {
     }
   }
 
-  private static boolean matchFieldOrMethodNameImpl(
-      String pattern, int patternIndex,
-      String name, int nameIndex,
-      List<ProguardWildcard> wildcards, int wildcardIndex) {
-    ProguardWildcard wildcard;
-    Pattern wildcardPattern;
-    BackReference backReference;
-    for (int i = patternIndex; i < pattern.length(); i++) {
-      char patternChar = pattern.charAt(i);
-      switch (patternChar) {
-        case '*':
-          wildcard = wildcards.get(wildcardIndex);
-          assert wildcard.isPattern();
-          wildcardPattern = wildcard.asPattern();
-          // Match the rest of the pattern against the rest of the name.
-          for (int nextNameIndex = nameIndex; nextNameIndex <= name.length(); nextNameIndex++) {
-            wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
-            if (matchFieldOrMethodNameImpl(
-                pattern, i + 1, name, nextNameIndex, wildcards, wildcardIndex + 1)) {
-              return true;
-            }
-          }
-          return false;
-        case '?':
-          wildcard = wildcards.get(wildcardIndex);
-          assert wildcard.isPattern();
-          if (nameIndex == name.length()) {
-            return false;
-          }
-          wildcardPattern = wildcard.asPattern();
-          wildcardPattern.setCaptured(name.substring(nameIndex, nameIndex + 1));
-          nameIndex++;
-          wildcardIndex++;
-          break;
-        case '<':
-          wildcard = wildcards.get(wildcardIndex);
-          assert wildcard.isBackReference();
-          backReference = wildcard.asBackReference();
-          String captured = backReference.getCaptured();
-          if (captured == null
-              || name.length() < nameIndex + captured.length()
-              || !captured.equals(name.substring(nameIndex, nameIndex + captured.length()))) {
-            return false;
-          }
-          nameIndex = nameIndex + captured.length();
-          wildcardIndex++;
-          i = pattern.indexOf(">", i);
-          break;
-        default:
-          if (nameIndex == name.length() || patternChar != name.charAt(nameIndex++)) {
-            return false;
-          }
-          break;
-      }
-    }
-    return nameIndex == name.length();
-  }
-
   public abstract boolean matches(String name);
 
   protected Iterable<ProguardWildcard> getWildcards() {
@@ -139,20 +81,89 @@ public abstract class ProguardNameMatcher {
     private final String pattern;
     private final List<ProguardWildcard> wildcards;
 
+    // Compiled from the pattern when the matcher is created, to reject most non-matching names
+    // without backtracking.
+    private final WildcardPatternFilter filter;
+
+    // If the pattern has no back references, then the values of the wildcards are only captured
+    // once the rest of the pattern has matched, instead of for every attempted match.
+    private final boolean hasBackReferences;
+
     MatchNamePattern(IdentifierPatternWithWildcards identifierPatternWithWildcards) {
       this.pattern = identifierPatternWithWildcards.pattern;
       this.wildcards = identifierPatternWithWildcards.wildcards;
+      this.filter = new WildcardPatternFilter(pattern);
+      this.hasBackReferences = identifierPatternWithWildcards.hasBackreference();
     }
 
     @Override
     public boolean matches(String name) {
-      boolean matched = matchFieldOrMethodNameImpl(pattern, 0, name, 0, wildcards, 0);
+      boolean matched = filter.mayMatch(name) && matchFieldOrMethodNameImpl(0, name, 0, 0);
       if (!matched) {
         wildcards.forEach(ProguardWildcard::clearCaptured);
       }
       return matched;
     }
 
+    private boolean matchFieldOrMethodNameImpl(
+        int patternIndex, String name, int nameIndex, int wildcardIndex) {
+      ProguardWildcard wildcard;
+      Pattern wildcardPattern;
+      BackReference backReference;
+      for (int i = patternIndex; i < pattern.length(); i++) {
+        char patternChar = pattern.charAt(i);
+        switch (patternChar) {
+          case '*':
+            wildcard = wildcards.get(wildcardIndex);
+            assert wildcard.isPattern();
+            wildcardPattern = wildcard.asPattern();
+            // Match the rest of the pattern against the rest of the name.
+            for (int nextNameIndex = nameIndex; nextNameIndex <= name.length(); nextNameIndex++) {
+              if (hasBackReferences) {
+                wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
+                if (matchFieldOrMethodNameImpl(i + 1, name, nextNameIndex, wildcardIndex + 1)) {
+                  return true;
+                }
+              } else if (matchFieldOrMethodNameImpl(
+                  i + 1, name, nextNameIndex, wildcardIndex + 1)) {
+                wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
+                return true;
+              }
+            }
+            return false;
+          case '?':
+            wildcard = wildcards.get(wildcardIndex);
+            assert wildcard.isPattern();
+            if (nameIndex == name.length()) {
+              return false;
+            }
+            wildcardPattern = wildcard.asPattern();
+            wildcardPattern.setCaptured(name.substring(nameIndex, nameIndex + 1));
+            nameIndex++;
+            wildcardIndex++;
+            break;
+          case '<':
+            wildcard = wildcards.get(wildcardIndex);
+            assert wildcard.isBackReference();
+            backReference = wildcard.asBackReference();
+            String captured = backReference.getCaptured();
+            if (captured == null || !name.startsWith(captured, nameIndex)) {
+              return false;
+            }
+            nameIndex = nameIndex + captured.length();
+            wildcardIndex++;
+            i = pattern.indexOf(">", i);
+            break;
+          default:
+            if (nameIndex == name.length() || patternChar != name.charAt(nameIndex++)) {
+              return false;
+            }
+            break;
+        }
+      }
+      return nameIndex == name.length();
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return wildcards;
@@ -119,6 +119,11 @@ public abstract class ProguardTypeMatcher {
     return null;
   }
 
+  // Returns a prefix of the source name of all class types that this matcher matches.
+  public String getClassNamePrefix() {
+    return "";
+  }
+
   public final boolean matchesSpecificType() {
     return getSpecificType() != null;
   }
@@ -343,6 +348,11 @@ public abstract class ProguardTypeMatcher {
     public DexType getSpecificType() {
       return type;
     }
+
+    @Override
+    public String getClassNamePrefix() {
+      return type.toSourceString();
+    }
   }
 
   private static class MatchTypePattern extends ProguardTypeMatcher {
@@ -351,18 +361,29 @@ public abstract class ProguardTypeMatcher {
     private final List<ProguardWildcard> wildcards;
     private final ClassOrType kind;
 
+    // Compiled from the pattern when the matcher is created, to reject most non-matching types
+    // without backtracking.
+    private final WildcardPatternFilter filter;
+
+    // If the pattern has no back references, then the values of the wildcards are only captured
+    // once the rest of the pattern has matched, instead of for every attempted match.
+    private final boolean hasBackReferences;
+
     private MatchTypePattern(
         IdentifierPatternWithWildcards identifierPatternWithWildcards, ClassOrType kind) {
       this.pattern = identifierPatternWithWildcards.pattern;
       this.wildcards = identifierPatternWithWildcards.wildcards;
       this.kind = kind;
+      this.filter = new WildcardPatternFilter(pattern);
+      this.hasBackReferences = identifierPatternWithWildcards.hasBackreference();
     }
 
     @Override
     public boolean matches(DexType type) {
       // TODO(herhut): Translate pattern to work on descriptors instead.
       String typeName = type.toSourceString();
-      boolean matched = matchClassOrTypeNameImpl(pattern, 0, typeName, 0, wildcards, 0, kind);
+      boolean matched =
+          filter.mayMatch(typeName) && matchClassOrTypeNameImpl(0, typeName, 0, 0);
       if (!matched) {
         wildcards.forEach(ProguardWildcard::clearCaptured);
       }
@@ -374,6 +395,17 @@ public abstract class ProguardTypeMatcher {
       return wildcards;
     }
 
+    @Override
+    public String getClassNamePrefix() {
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c == '*' || c == '?' || c == '<') {
+          return pattern.substring(0, i);
+        }
+      }
+      return pattern;
+    }
+
     @Override
     protected ProguardTypeMatcher materialize(DexItemFactory dexItemFactory) {
       Int2ReferenceMap<String> materializedBackReferences = new Int2ReferenceOpenHashMap<>();
@@ -459,11 +491,8 @@ public abstract class ProguardTypeMatcher {
       return builder.toString();
     }
 
-    private static boolean matchClassOrTypeNameImpl(
-        String pattern, int patternIndex,
-        String name, int nameIndex,
-        List<ProguardWildcard> wildcards, int wildcardIndex,
-        ClassOrType kind) {
+    private boolean matchClassOrTypeNameImpl(
+        int patternIndex, String name, int nameIndex, int wildcardIndex) {
       ProguardWildcard wildcard;
       Pattern wildcardPattern;
       BackReference backReference;
@@ -500,35 +529,29 @@ public abstract class ProguardTypeMatcher {
 
             // Match the rest of the pattern against the (non-empty) rest of the class name.
             for (int nextNameIndex = nameIndex; nextNameIndex < name.length(); nextNameIndex++) {
-              wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
               if (!includeSeparators) {
                 if (name.charAt(nextNameIndex) == '.') {
-                  return matchClassOrTypeNameImpl(
-                      pattern,
-                      nextPatternIndex,
-                      name,
-                      nextNameIndex,
-                      wildcards,
-                      wildcardIndex + 1,
-                      kind);
+                  return matchRestOfClassOrTypeName(
+                      wildcardPattern, nextPatternIndex, name, nameIndex, nextNameIndex,
+                      wildcardIndex + 1);
                 }
               }
               if (kind == ClassOrType.TYPE && name.charAt(nextNameIndex) == '[') {
-                return matchClassOrTypeNameImpl(
-                    pattern, nextPatternIndex, name, nextNameIndex, wildcards, wildcardIndex + 1,
-                    kind);
+                return matchRestOfClassOrTypeName(
+                    wildcardPattern, nextPatternIndex, name, nameIndex, nextNameIndex,
+                    wildcardIndex + 1);
               }
-              if (matchClassOrTypeNameImpl(
-                  pattern, nextPatternIndex, name, nextNameIndex, wildcards, wildcardIndex + 1,
-                  kind)) {
+              if (matchRestOfClassOrTypeName(
+                  wildcardPattern, nextPatternIndex, name, nameIndex, nextNameIndex,
+                  wildcardIndex + 1)) {
                 return true;
               }
             }
 
             // Finally, check the case where the '*', '**', or '***' eats all of the class name.
-            wildcardPattern.setCaptured(name.substring(nameIndex));
-            return matchClassOrTypeNameImpl(
-                pattern, nextPatternIndex, name, name.length(), wildcards, wildcardIndex + 1, kind);
+            return matchRestOfClassOrTypeName(
+                wildcardPattern, nextPatternIndex, name, nameIndex, name.length(),
+                wildcardIndex + 1);
 
           case '?':
             wildcard = wildcards.get(wildcardIndex);
@@ -547,9 +570,7 @@ public abstract class ProguardTypeMatcher {
             assert wildcard.isBackReference();
             backReference = wildcard.asBackReference();
             String captured = backReference.getCaptured();
-            if (captured == null
-                || name.length() < nameIndex + captured.length()
-                || !captured.equals(name.substring(nameIndex, nameIndex + captured.length()))) {
+            if (captured == null || !name.startsWith(captured, nameIndex)) {
               return false;
             }
             nameIndex = nameIndex + captured.length();
@@ -567,6 +588,26 @@ public abstract class ProguardTypeMatcher {
       return nameIndex == name.length();
     }
 
+    // Matches the rest of the pattern against the rest of the name, where the part of the name
+    // from capturedStartIndex to nameIndex is captured by the given wildcard.
+    private boolean matchRestOfClassOrTypeName(
+        Pattern wildcardPattern,
+        int patternIndex,
+        String name,
+        int capturedStartIndex,
+        int nameIndex,
+        int wildcardIndex) {
+      if (hasBackReferences) {
+        wildcardPattern.setCaptured(name.substring(capturedStartIndex, nameIndex));
+        return matchClassOrTypeNameImpl(patternIndex, name, nameIndex, wildcardIndex);
+      }
+      if (matchClassOrTypeNameImpl(patternIndex, name, nameIndex, wildcardIndex)) {
+        wildcardPattern.setCaptured(name.substring(capturedStartIndex, nameIndex));
+        return true;
+      }
+      return false;
+    }
+
     private static boolean containsSeparatorsStartingAt(String className, int nameIndex) {
       return className.indexOf('.', nameIndex) != -1;
     }
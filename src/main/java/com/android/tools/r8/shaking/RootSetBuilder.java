@@ -90,6 +90,9 @@ public class RootSetBuilder {
   private final DexStringCache dexStringCache = new DexStringCache();
   private final Set<ProguardIfRule> ifRules = Sets.newIdentityHashSet();
 
+  // Index of the program classes, created on the first rule that is not limited to specific types.
+  private ProgramClassIndex programClassIndex;
+
   public RootSetBuilder(
       AppView<? extends AppInfoWithSubtyping> appView,
       DexApplication application,
@@ -101,8 +104,16 @@ public class RootSetBuilder {
   }
 
   RootSetBuilder(
-      AppView<? extends AppInfoWithSubtyping> appView, Collection<ProguardIfRule> ifRules) {
-    this(appView, appView.appInfo().app(), ifRules);
+      AppView<? extends AppInfoWithSubtyping> appView, ProgramClassIndex programClassIndex) {
+    this(appView, appView.appInfo().app(), null);
+    this.programClassIndex = programClassIndex;
+  }
+
+  ProgramClassIndex getProgramClassIndex() {
+    if (programClassIndex == null) {
+      programClassIndex = new ProgramClassIndex(application.classes());
+    }
+    return programClassIndex;
   }
 
   // Process a class with the keep rule.
@@ -239,11 +250,12 @@ public class RootSetBuilder {
       return;
     }
 
+    ProgramClassIndex programClassIndex = getProgramClassIndex();
     futures.add(
         executorService.submit(
             () -> {
               for (DexProgramClass clazz :
-                  rule.relevantCandidatesForRule(appView, application.classes())) {
+                  rule.relevantCandidatesForRule(appView, programClassIndex)) {
                 process(clazz, rule, ifRule);
               }
               if (rule.applyToNonProgramClasses()) {
@@ -0,0 +1,80 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter that rejects most names that do not match a wildcard pattern, without running the
+ * backtracking matcher and without capturing the values of the wildcards.
+ *
+ * <p>The filter is compiled from the literal segments of the pattern, i.e., the parts between the
+ * wildcards '*', '?' and '&lt;n&gt;'. A name can only match the pattern if it starts with the
+ * literal prefix of the pattern, ends with the literal suffix of the pattern, and contains the
+ * remaining literal segments in order in between. For example, the name 'com.example.R$id' can only
+ * match 'com.**.R$*' if it starts with 'com.' and contains '.R$' after that.
+ */
+class WildcardPatternFilter {
+
+  private final String prefix;
+  private final String suffix;
+  private final String[] infixes;
+  private final int minimumLength;
+
+  WildcardPatternFilter(String pattern) {
+    List<String> literals = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?' || c == '<') {
+        literals.add(literal.toString());
+        literal.setLength(0);
+        if (c == '<') {
+          // Skip the back reference. If the '<' is not closed, then the rest of the pattern is not
+          // used for filtering.
+          int end = pattern.indexOf('>', i);
+          i = end < 0 ? pattern.length() : end;
+        }
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literals.isEmpty()) {
+      // A pattern without wildcards is only matched by the pattern itself.
+      prefix = pattern;
+      suffix = "";
+      infixes = new String[0];
+    } else {
+      prefix = literals.get(0);
+      suffix = literal.toString();
+      infixes =
+          literals.subList(1, literals.size()).stream()
+              .filter(infix -> !infix.isEmpty())
+              .toArray(String[]::new);
+    }
+    int length = prefix.length() + suffix.length();
+    for (String infix : infixes) {
+      length += infix.length();
+    }
+    minimumLength = length;
+  }
+
+  /** Returns false if the name is guaranteed not to match the pattern. */
+  boolean mayMatch(String name) {
+    if (name.length() < minimumLength || !name.startsWith(prefix) || !name.endsWith(suffix)) {
+      return false;
+    }
+    int index = prefix.length();
+    int end = name.length() - suffix.length();
+    for (String infix : infixes) {
+      int found = name.indexOf(infix, index);
+      if (found < 0 || found + infix.length() > end) {
+        return false;
+      }
+      index = found + infix.length();
+    }
+    return true;
+  }
+}
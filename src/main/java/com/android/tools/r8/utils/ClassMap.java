@@ -11,13 +11,19 @@ import com.android.tools.r8.graph.DexType;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -26,7 +32,10 @@ import java.util.function.Supplier;
  * classes along with lazy loaded content.
  *
  * The {@link #get(DexType)} operation for loading the type of a class is non-locking if a class was
- * loaded before but may block if a class has not yet been loaded.
+ * loaded before but may block if a class has not yet been loaded. Classes of different types are
+ * loaded concurrently, as the loading of a class only blocks other threads loading the same type.
+ *
+ * {@link #prefetch(Collection, ExecutorService)} can be used to load a set of classes in parallel.
  *
  * {@link #forceLoad(Predicate)} can be used to load all classes available from the given class
  * provider. Only after
@@ -50,11 +59,20 @@ public abstract class ClassMap<T extends DexClass> {
    * If the class provider is `null` it indicates that all classes are already present in a map
    * referenced by `classes` and thus the collection is fully loaded.
    * <p>
-   * <b>NOTE:</b> the field may only transition from a value to null while the this object is
-   * locked. Furthermore, it may never transition back from null.
+   * <b>NOTE:</b> the field may only transition from a value to null while the write lock of
+   * {@link #classProviderLock} is held. Furthermore, it may never transition back from null.
    */
   private final AtomicReference<ClassProvider<T>> classProvider = new AtomicReference<>();
 
+  /**
+   * Guards the class provider against being cleared while a class loader is added to `classes`.
+   *
+   * <p>Adding class loaders only requires the read lock, such that threads loading different types
+   * only contend on the bins of `classes`. The write lock is only taken when the collection is
+   * transitioned into the fully loaded state.
+   */
+  private final ReadWriteLock classProviderLock = new ReentrantReadWriteLock();
+
   ClassMap(ConcurrentHashMap<DexType, Supplier<T>> classes, ClassProvider<T> classProvider) {
     assert classProvider == null || classProvider.getClassKind() == getClassKind();
     this.classes = classes == null ? new ConcurrentHashMap<>() : classes;
@@ -98,9 +116,11 @@ public abstract class ClassMap<T extends DexClass> {
     }
 
     // Otherwise, we have to do the full dance with locking to avoid creating two suppliers.
-    // Lock on this to ensure classProvider is not changed concurrently, so we do not create
-    // a concurrent class loader with a null classProvider.
-    synchronized (this) {
+    // Hold the read lock to ensure classProvider is not changed concurrently, so we do not create
+    // a concurrent class loader with a null classProvider. The class loader is created under the
+    // lock of the bin of `classes`, so creating loaders for other types can proceed concurrently.
+    classProviderLock.readLock().lock();
+    try {
       supplier = classes.computeIfAbsent(type, key -> {
         // Get class supplier, create it if it does not
         // exist and the collection is NOT fully loaded.
@@ -111,11 +131,31 @@ public abstract class ClassMap<T extends DexClass> {
 
         return new ConcurrentClassLoader<>(this, classProvider.get(), type);
       });
+    } finally {
+      classProviderLock.readLock().unlock();
     }
 
     return supplier == null ? null : supplier.get();
   }
 
+  /**
+   * Loads the classes of the given types in parallel, such that subsequent calls to {@link
+   * #get(DexType)} for these types do not block.
+   */
+  public void prefetch(Collection<DexType> types, ExecutorService executorService)
+      throws ExecutionException {
+    if (isFullyLoaded()) {
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (DexType type : types) {
+      if (!classes.containsKey(type)) {
+        futures.add(executorService.submit(() -> get(type)));
+      }
+    }
+    ThreadUtils.awaitFutures(futures);
+  }
+
   /**
    * Returns all classes from the collection. The collection must be force-loaded.
    */
@@ -173,7 +213,7 @@ public abstract class ClassMap<T extends DexClass> {
     knownClasses.addAll(classes.keySet());
 
     // Add all types the class provider provides. Note that it may take time for class
-    // provider to collect these types, so we do it outside synchronized context.
+    // provider to collect these types, so we do it outside the locked context.
     knownClasses.addAll(classProvider.collectTypes());
 
     // Make sure all the types in `knownClasses` are loaded.
@@ -187,9 +227,10 @@ public abstract class ClassMap<T extends DexClass> {
       }
     }
 
-    // Lock on this to prevent concurrent changes to classProvider state and to ensure that
+    // Take the write lock to prevent concurrent changes to classProvider state and to ensure that
     // only one thread proceeds to rewriting the map.
-    synchronized (this) {
+    classProviderLock.writeLock().lock();
+    try {
       if (this.classProvider.get() == null) {
         return; // Has been force-loaded concurrently.
       }
@@ -219,8 +260,10 @@ public abstract class ClassMap<T extends DexClass> {
 
       // Mark the class map as fully loaded. This has to be the last operation, as this toggles
       // the class map into fully loaded state and the get operation will no longer try to load
-      // classes by blocking on 'this' and hence wait for the loading operation to finish.
+      // classes by blocking on the lock and hence wait for the loading operation to finish.
       this.classProvider.set(null);
+    } finally {
+      classProviderLock.writeLock().unlock();
     }
   }
 
@@ -172,11 +172,29 @@ public class InternalOptions {
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
   // To print memory one also have to enable printtimes.
   public boolean printMemory = System.getProperty("com.android.tools.r8.printmemory") != null;
+  // Write the timings, including CPU time and allocated bytes per phase, as JSON to this file.
+  public String printTimesJsonFile = System.getProperty("com.android.tools.r8.printtimesjson");
 
   public String dumpInputToFile = System.getProperty("com.android.tools.r8.dumpinputtofile");
   public String dumpInputToDirectory =
       System.getProperty("com.android.tools.r8.dumpinputtodirectory");
 
+  // Read dex input files in place from a memory mapping instead of copying them to the heap. Not
+  // enabled on Windows, where a mapped file cannot be deleted or overwritten until the mapping is
+  // garbage collected. A dex input file that is truncated while it is being read is reported as a
+  // compilation error, see BinaryReader.inputTruncatedError. Inputs that may change during the
+  // compilation can be read into the heap by setting com.android.tools.r8.disableMemoryMappedDex.
+  public boolean enableMemoryMappedDexInput =
+      !System.getProperty("os.name", "").startsWith("Windows")
+          && System.getProperty("com.android.tools.r8.disableMemoryMappedDex") == null;
+
+  // Keep the instructions of DEX code items undecoded until the code is first used.
+  public boolean enableLazyDexCodeParsing = true;
+
+  // Load the library and classpath supertypes of the program classes in parallel before D8
+  // desugaring, instead of on demand from the compilation threads. Only used when desugaring.
+  public boolean enableSupertypePrefetching = true;
+
   // Flag to toggle if DEX code objects should pass-through without IR processing.
   public boolean passthroughDexCode = false;
   // TODO(b/134705306): Currently allow merging dex files resulting from Java 8 library
@@ -36,6 +36,7 @@ import com.android.tools.r8.ir.code.Position;
 import com.android.tools.r8.naming.ClassNameMapper;
 import com.android.tools.r8.naming.ClassNaming;
 import com.android.tools.r8.naming.ClassNaming.Builder;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
 import com.android.tools.r8.naming.MemberNaming;
 import com.android.tools.r8.naming.MemberNaming.FieldSignature;
 import com.android.tools.r8.naming.MemberNaming.MethodSignature;
@@ -48,6 +49,9 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -163,142 +167,177 @@ public class LineNumberOptimizer {
   public static ClassNameMapper run(
       AppView<AppInfoWithSubtyping> appView,
       DexApplication application,
-      NamingLens namingLens) {
+      NamingLens namingLens,
+      ExecutorService executorService)
+      throws ExecutionException {
     ClassNameMapper.Builder classNameMapperBuilder = ClassNameMapper.builder();
-    // Collect which files contain which classes that need to have their line numbers optimized.
-    for (DexProgramClass clazz : application.classes()) {
-      IdentityHashMap<DexString, List<DexEncodedMethod>> methodsByRenamedName =
-          groupMethodsByRenamedName(appView.graphLense(), namingLens, clazz);
-
-      // At this point we don't know if we really need to add this class to the builder.
-      // It depends on whether any methods/fields are renamed or some methods contain positions.
-      // Create a supplier which creates a new, cached ClassNaming.Builder on-demand.
-      DexType originalType = appView.graphLense().getOriginalType(clazz.type);
-      DexString renamedClassName = namingLens.lookupDescriptor(clazz.getType());
-      Supplier<ClassNaming.Builder> onDemandClassNamingBuilder =
-          Suppliers.memoize(
-              () ->
-                  classNameMapperBuilder.classNamingBuilder(
+    // The classes are processed in parallel. The naming of each class is collected in a builder of
+    // its own, and the builders are added to the mapper in the order of the classes, such that the
+    // mapper does not depend on the order in which the classes are processed.
+    List<DexProgramClass> classes = application.classes();
+    ClassNamingForNameMapper.Builder[] classNamingBuilders =
+        new ClassNamingForNameMapper.Builder[classes.size()];
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < classes.size(); i++) {
+      int index = i;
+      futures.add(
+          executorService.submit(
+              () -> {
+                classNamingBuilders[index] =
+                    processClass(appView, application, namingLens, classes.get(index));
+                return null;
+              }));
+    }
+    ThreadUtils.awaitFutures(futures);
+    for (ClassNamingForNameMapper.Builder classNamingBuilder : classNamingBuilders) {
+      if (classNamingBuilder != null) {
+        classNameMapperBuilder.addClassNamingBuilder(classNamingBuilder);
+      }
+    }
+    return classNameMapperBuilder.build();
+  }
+
+  // Optimizes the line numbers of the methods of the given class. Returns the builder for the
+  // naming of the class, or null if the class does not need to be in the mapping.
+  private static ClassNamingForNameMapper.Builder processClass(
+      AppView<AppInfoWithSubtyping> appView,
+      DexApplication application,
+      NamingLens namingLens,
+      DexProgramClass clazz) {
+    IdentityHashMap<DexString, List<DexEncodedMethod>> methodsByRenamedName =
+        groupMethodsByRenamedName(appView.graphLense(), namingLens, clazz);
+
+    // At this point we don't know if we really need to add this class to the builder.
+    // It depends on whether any methods/fields are renamed or some methods contain positions.
+    // Create a supplier which creates a new, cached ClassNaming.Builder on-demand.
+    DexType originalType = appView.graphLense().getOriginalType(clazz.type);
+    DexString renamedClassName = namingLens.lookupDescriptor(clazz.getType());
+    Box<ClassNamingForNameMapper.Builder> createdClassNamingBuilder = new Box<>();
+    Supplier<ClassNaming.Builder> onDemandClassNamingBuilder =
+        Suppliers.memoize(
+            () -> {
+              createdClassNamingBuilder.set(
+                  ClassNamingForNameMapper.builder(
                       DescriptorUtils.descriptorToJavaType(renamedClassName.toString()),
-                      originalType.toSourceString(),
-                      com.android.tools.r8.position.Position.UNKNOWN));
-
-      // If the class is renamed add it to the classNamingBuilder.
-      addClassToClassNaming(originalType, renamedClassName, onDemandClassNamingBuilder);
-
-      // First transfer renamed fields to classNamingBuilder.
-      addFieldsToClassNaming(appView.graphLense(), namingLens, clazz, onDemandClassNamingBuilder);
-
-      // Then process the methods, ordered by renamed name.
-      List<DexString> renamedMethodNames = new ArrayList<>(methodsByRenamedName.keySet());
-      renamedMethodNames.sort(DexString::slowCompareTo);
-      for (DexString methodName : renamedMethodNames) {
-        List<DexEncodedMethod> methods = methodsByRenamedName.get(methodName);
-        if (methods.size() > 1) {
-          // If there are multiple methods with the same name (overloaded) then sort them for
-          // deterministic behaviour: the algorithm will assign new line numbers in this order.
-          // Methods with different names can share the same line numbers, that's why they don't
-          // need to be sorted.
-          sortMethods(methods);
-        }
+                      originalType.toSourceString()));
+              return createdClassNamingBuilder.get();
+            });
+
+    // If the class is renamed add it to the classNamingBuilder.
+    addClassToClassNaming(originalType, renamedClassName, onDemandClassNamingBuilder);
+
+    // First transfer renamed fields to classNamingBuilder.
+    addFieldsToClassNaming(appView.graphLense(), namingLens, clazz, onDemandClassNamingBuilder);
+
+    // Then process the methods, ordered by renamed name.
+    List<DexString> renamedMethodNames = new ArrayList<>(methodsByRenamedName.keySet());
+    renamedMethodNames.sort(DexString::slowCompareTo);
+    for (DexString methodName : renamedMethodNames) {
+      List<DexEncodedMethod> methods = methodsByRenamedName.get(methodName);
+      if (methods.size() > 1) {
+        // If there are multiple methods with the same name (overloaded) then sort them for
+        // deterministic behaviour: the algorithm will assign new line numbers in this order.
+        // Methods with different names can share the same line numbers, that's why they don't
+        // need to be sorted.
+        sortMethods(methods);
+      }
 
-        boolean identityMapping =
-            appView.options().lineNumberOptimization == LineNumberOptimization.OFF;
-        PositionRemapper positionRemapper =
-            identityMapping
-                ? new IdentityPositionRemapper()
-                : new OptimizingPositionRemapper(appView.options());
-
-        for (DexEncodedMethod method : methods) {
-          List<MappedPosition> mappedPositions = new ArrayList<>();
-          Code code = method.getCode();
-          if (code != null) {
-            if (code.isDexCode() && doesContainPositions(code.asDexCode())) {
-              optimizeDexCodePositions(
-                  method, application, positionRemapper, mappedPositions, identityMapping);
-            } else if (code.isCfCode() && doesContainPositions(code.asCfCode())) {
-              optimizeCfCodePositions(method, positionRemapper, mappedPositions, appView);
-            }
+      boolean identityMapping =
+          appView.options().lineNumberOptimization == LineNumberOptimization.OFF;
+      PositionRemapper positionRemapper =
+          identityMapping
+              ? new IdentityPositionRemapper()
+              : new OptimizingPositionRemapper(appView.options());
+
+      for (DexEncodedMethod method : methods) {
+        List<MappedPosition> mappedPositions = new ArrayList<>();
+        Code code = method.getCode();
+        if (code != null) {
+          if (code.isDexCode() && doesContainPositions(code.asDexCode())) {
+            optimizeDexCodePositions(
+                method, application, positionRemapper, mappedPositions, identityMapping);
+          } else if (code.isCfCode() && doesContainPositions(code.asCfCode())) {
+            optimizeCfCodePositions(method, positionRemapper, mappedPositions, appView);
           }
+        }
 
-          DexMethod originalMethod = appView.graphLense().getOriginalMethodSignature(method.method);
-          MethodSignature originalSignature =
-              MethodSignature.fromDexMethod(originalMethod, originalMethod.holder != clazz.type);
-
-          DexString obfuscatedNameDexString = namingLens.lookupName(method.method);
-          String obfuscatedName = obfuscatedNameDexString.toString();
-
-          // Add simple "a() -> b" mapping if we won't have any other with concrete line numbers
-          if (mappedPositions.isEmpty()) {
-            // But only if it's been renamed.
-            if (obfuscatedNameDexString != originalMethod.name
-                || originalMethod.holder != clazz.type) {
-              onDemandClassNamingBuilder
-                  .get()
-                  .addMappedRange(null, originalSignature, null, obfuscatedName);
-            }
-            continue;
+        DexMethod originalMethod = appView.graphLense().getOriginalMethodSignature(method.method);
+        MethodSignature originalSignature =
+            MethodSignature.fromDexMethod(originalMethod, originalMethod.holder != clazz.type);
+
+        DexString obfuscatedNameDexString = namingLens.lookupName(method.method);
+        String obfuscatedName = obfuscatedNameDexString.toString();
+
+        // Add simple "a() -> b" mapping if we won't have any other with concrete line numbers
+        if (mappedPositions.isEmpty()) {
+          // But only if it's been renamed.
+          if (obfuscatedNameDexString != originalMethod.name
+              || originalMethod.holder != clazz.type) {
+            onDemandClassNamingBuilder
+                .get()
+                .addMappedRange(null, originalSignature, null, obfuscatedName);
           }
+          continue;
+        }
 
-          Map<DexMethod, MethodSignature> signatures = new IdentityHashMap<>();
-          signatures.put(originalMethod, originalSignature);
-          Function<DexMethod, MethodSignature> getOriginalMethodSignature =
-              m -> {
-                DexMethod original = appView.graphLense().getOriginalMethodSignature(m);
-                return signatures.computeIfAbsent(
-                    original,
-                    key ->
-                        MethodSignature.fromDexMethod(
-                            original, original.holder != clazz.getType()));
-              };
-
-          MemberNaming memberNaming = new MemberNaming(originalSignature, obfuscatedName);
-          onDemandClassNamingBuilder.get().addMemberEntry(memberNaming);
-
-          // Update memberNaming with the collected positions, merging multiple positions into a
-          // single region whenever possible.
-          for (int i = 0; i < mappedPositions.size(); /* updated in body */ ) {
-            MappedPosition firstPosition = mappedPositions.get(i);
-            int j = i + 1;
-            MappedPosition lastPosition = firstPosition;
-            for (; j < mappedPositions.size(); j++) {
-              // Break if this position cannot be merged with lastPosition.
-              MappedPosition mp = mappedPositions.get(j);
-              // Note that mp.caller and lastPosition.class must be deep-compared since multiple
-              // inlining passes lose the canonical property of the positions.
-              if ((mp.method != lastPosition.method)
-                  || (mp.originalLine - lastPosition.originalLine
-                      != mp.obfuscatedLine - lastPosition.obfuscatedLine)
-                  || !Objects.equals(mp.caller, lastPosition.caller)) {
-                break;
-              }
-              lastPosition = mp;
+        Map<DexMethod, MethodSignature> signatures = new IdentityHashMap<>();
+        signatures.put(originalMethod, originalSignature);
+        Function<DexMethod, MethodSignature> getOriginalMethodSignature =
+            m -> {
+              DexMethod original = appView.graphLense().getOriginalMethodSignature(m);
+              return signatures.computeIfAbsent(
+                  original,
+                  key ->
+                      MethodSignature.fromDexMethod(
+                          original, original.holder != clazz.getType()));
+            };
+
+        MemberNaming memberNaming = new MemberNaming(originalSignature, obfuscatedName);
+        onDemandClassNamingBuilder.get().addMemberEntry(memberNaming);
+
+        // Update memberNaming with the collected positions, merging multiple positions into a
+        // single region whenever possible.
+        for (int i = 0; i < mappedPositions.size(); /* updated in body */ ) {
+          MappedPosition firstPosition = mappedPositions.get(i);
+          int j = i + 1;
+          MappedPosition lastPosition = firstPosition;
+          for (; j < mappedPositions.size(); j++) {
+            // Break if this position cannot be merged with lastPosition.
+            MappedPosition mp = mappedPositions.get(j);
+            // Note that mp.caller and lastPosition.class must be deep-compared since multiple
+            // inlining passes lose the canonical property of the positions.
+            if ((mp.method != lastPosition.method)
+                || (mp.originalLine - lastPosition.originalLine
+                    != mp.obfuscatedLine - lastPosition.obfuscatedLine)
+                || !Objects.equals(mp.caller, lastPosition.caller)) {
+              break;
             }
-            Range obfuscatedRange =
-                new Range(firstPosition.obfuscatedLine, lastPosition.obfuscatedLine);
-            Range originalRange = new Range(firstPosition.originalLine, lastPosition.originalLine);
-
-            ClassNaming.Builder classNamingBuilder = onDemandClassNamingBuilder.get();
+            lastPosition = mp;
+          }
+          Range obfuscatedRange =
+              new Range(firstPosition.obfuscatedLine, lastPosition.obfuscatedLine);
+          Range originalRange = new Range(firstPosition.originalLine, lastPosition.originalLine);
+
+          ClassNaming.Builder classNamingBuilder = onDemandClassNamingBuilder.get();
+          classNamingBuilder.addMappedRange(
+              obfuscatedRange,
+              getOriginalMethodSignature.apply(firstPosition.method),
+              originalRange,
+              obfuscatedName);
+          Position caller = firstPosition.caller;
+          while (caller != null) {
             classNamingBuilder.addMappedRange(
                 obfuscatedRange,
-                getOriginalMethodSignature.apply(firstPosition.method),
-                originalRange,
+                getOriginalMethodSignature.apply(caller.method),
+                Math.max(caller.line, 0), // Prevent against "no-position".
                 obfuscatedName);
-            Position caller = firstPosition.caller;
-            while (caller != null) {
-              classNamingBuilder.addMappedRange(
-                  obfuscatedRange,
-                  getOriginalMethodSignature.apply(caller.method),
-                  Math.max(caller.line, 0), // Prevent against "no-position".
-                  obfuscatedName);
-              caller = caller.callerPosition;
-            }
-            i = j;
+            caller = caller.callerPosition;
           }
-        } // for each method of the group
-      } // for each method group, grouped by name
-    } // for each class
-    return classNameMapperBuilder.build();
+          i = j;
+        }
+      } // for each method of the group
+    } // for each method group, grouped by name
+    return createdClassNamingBuilder.get();
   }
 
   private static int getMethodStartLine(DexEncodedMethod method) {
@@ -341,7 +380,7 @@ public class LineNumberOptimizer {
       Supplier<Builder> onDemandClassNamingBuilder) {
     // We do know we need to create a ClassNaming.Builder if the class itself had been renamed.
     if (originalType.descriptor != renamedClassName) {
-      // Not using return value, it's registered in classNameMapperBuilder
+      // Not using return value, it's returned by processClass
       onDemandClassNamingBuilder.get();
     }
   }
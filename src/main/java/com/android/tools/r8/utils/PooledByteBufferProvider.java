@@ -0,0 +1,92 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ByteBufferProvider;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link ByteBufferProvider} that reuses released byte buffers, e.g., for processes that run many
+ * compilations.
+ *
+ * <p>Buffers are allocated in power-of-two size classes. Released buffers are cached per thread,
+ * since a buffer is always released on the thread that acquired it. Buffers that are larger than
+ * the largest size class are not cached.
+ *
+ * <p>A reused buffer is filled with zeros, since the dex writer does not write the padding between
+ * items.
+ */
+public class PooledByteBufferProvider implements ByteBufferProvider {
+
+  private static final int MIN_SIZE_CLASS_SHIFT = 12; // 4KB.
+  private static final int MAX_SIZE_CLASS_SHIFT = 26; // 64MB.
+  private static final int SIZE_CLASSES = MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1;
+
+  private final int maxCachedBuffersPerSizeClass;
+
+  private final ThreadLocal<List<ArrayDeque<ByteBuffer>>> caches =
+      ThreadLocal.withInitial(
+          () -> {
+            List<ArrayDeque<ByteBuffer>> cache = new ArrayList<>(SIZE_CLASSES);
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+              cache.add(new ArrayDeque<>());
+            }
+            return cache;
+          });
+
+  public PooledByteBufferProvider() {
+    this(2);
+  }
+
+  public PooledByteBufferProvider(int maxCachedBuffersPerSizeClass) {
+    assert maxCachedBuffersPerSizeClass >= 0;
+    this.maxCachedBuffersPerSizeClass = maxCachedBuffersPerSizeClass;
+  }
+
+  private static int sizeClass(int capacity) {
+    int shift = Math.max(MIN_SIZE_CLASS_SHIFT, 32 - Integer.numberOfLeadingZeros(capacity - 1));
+    return shift <= MAX_SIZE_CLASS_SHIFT ? shift - MIN_SIZE_CLASS_SHIFT : -1;
+  }
+
+  private static int sizeOfSizeClass(int sizeClass) {
+    return 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+  }
+
+  @Override
+  public ByteBuffer acquireByteBuffer(int capacity) {
+    int sizeClass = sizeClass(capacity);
+    if (sizeClass < 0) {
+      return ByteBuffer.allocate(capacity);
+    }
+    ByteBuffer buffer = caches.get().get(sizeClass).pollFirst();
+    if (buffer == null) {
+      return ByteBuffer.allocate(sizeOfSizeClass(sizeClass));
+    }
+    Arrays.fill(buffer.array(), (byte) 0);
+    buffer.clear();
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    return buffer;
+  }
+
+  @Override
+  public void releaseByteBuffer(ByteBuffer buffer) {
+    int sizeClass = sizeClass(buffer.capacity());
+    if (sizeClass < 0
+        || buffer.capacity() != sizeOfSizeClass(sizeClass)
+        || !buffer.hasArray()
+        || buffer.arrayOffset() != 0) {
+      // Not allocated for a size class.
+      return;
+    }
+    ArrayDeque<ByteBuffer> cache = caches.get().get(sizeClass);
+    if (cache.size() < maxCachedBuffersPerSizeClass) {
+      cache.addFirst(buffer);
+    }
+  }
+}
@@ -12,20 +12,49 @@ package com.android.tools.r8.utils;
 //     t.scope("My task", () -> { ... });
 // Finally a report is printed by:
 //     t.report();
+// or written as JSON by:
+//     t.reportAsJson(path);
+//
+// When thread resources are tracked, each node also records the CPU time and the allocated bytes
+// of the compiler between begin() and end(): the resources used by the thread that owns the timing
+// and by the tasks that have completed on an executor service obtained from
+// trackThreadResources(executorService). The resources of a task are attributed to the phases that
+// are active when the task completes. Threads that are not running compiler tasks, e.g., other
+// compilations in the same JVM, are not accounted for. The timing must be begun and ended on the
+// thread that owns it.
 
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Timing {
 
   private final Stack<Node> stack;
   private final boolean trackMemory;
+  private final boolean trackThreadResources;
+  // Resources used by the tasks that have completed on the executor services that track thread
+  // resources.
+  private final AtomicLong taskCpuTime = new AtomicLong();
+  private final AtomicLong taskAllocatedBytes = new AtomicLong();
 
   public Timing() {
     this("<no title>");
@@ -36,23 +65,46 @@ public class Timing {
   }
 
   public Timing(String title, boolean trackMemory) {
+    this(title, trackMemory, false);
+  }
+
+  public Timing(String title, boolean trackMemory, boolean trackThreadResources) {
     this.trackMemory = trackMemory;
+    this.trackThreadResources = trackThreadResources;
     stack = new Stack<>();
     stack.push(new Node("Recorded timings for " + title));
   }
 
+  public static Timing create(String title, InternalOptions options) {
+    return new Timing(
+        title, options.printMemory, options.printTimes || options.printTimesJsonFile != null);
+  }
+
   class Node {
     final String title;
 
     final Map<String, Node> children = new LinkedHashMap<>();
     long duration = 0;
     long start_time;
+    long cpuTime = 0;
+    long startCpuTime;
+    long allocatedBytes = 0;
+    long startAllocatedBytes;
     List<String> startMemory;
     List<String> endMemory;
 
     Node(String title) {
       this.title = title;
-      this.start_time = System.nanoTime();
+      start();
+    }
+
+    private void start() {
+      start_time = System.nanoTime();
+      if (trackThreadResources) {
+        startCpuTime = ThreadResources.currentThreadCpuTime() + taskCpuTime.get();
+        startAllocatedBytes =
+            ThreadResources.currentThreadAllocatedBytes() + taskAllocatedBytes.get();
+      }
       if (trackMemory) {
         startMemory = computeMemoryInformation();
       }
@@ -60,31 +112,63 @@ public class Timing {
 
     void restart() {
       assert start_time == -1;
-      start_time = System.nanoTime();
-      if (trackMemory) {
-        startMemory = computeMemoryInformation();
-      }
+      start();
     }
 
     void end() {
       duration += System.nanoTime() - start_time;
       start_time = -1;
       assert duration() >= 0;
+      if (trackThreadResources) {
+        cpuTime += ThreadResources.currentThreadCpuTime() + taskCpuTime.get() - startCpuTime;
+        allocatedBytes +=
+            ThreadResources.currentThreadAllocatedBytes()
+                + taskAllocatedBytes.get()
+                - startAllocatedBytes;
+      }
       if (trackMemory) {
         System.gc();
         endMemory = computeMemoryInformation();
       }
     }
 
+    boolean isRunning() {
+      return start_time != -1;
+    }
+
     long duration() {
       return duration;
     }
 
     @Override
     public String toString() {
+      if (trackThreadResources) {
+        return title
+            + ": "
+            + (duration() / 1000000)
+            + "ms, cpu: "
+            + (cpuTime / 1000000)
+            + "ms, allocated: "
+            + (allocatedBytes / (1024 * 1024))
+            + "MB.";
+      }
       return title + ": " + (duration() / 1000000) + "ms.";
     }
 
+    JsonObject toJson() {
+      JsonObject json = new JsonObject();
+      json.addProperty("title", title);
+      json.addProperty("wallTimeNanos", duration());
+      if (trackThreadResources) {
+        json.addProperty("cpuTimeNanos", cpuTime);
+        json.addProperty("allocatedBytes", allocatedBytes);
+      }
+      JsonArray childrenJson = new JsonArray();
+      children.values().forEach(child -> childrenJson.add(child.toJson()));
+      json.add("children", childrenJson);
+      return json;
+    }
+
     public String toString(Node top) {
       if (this == top) return toString();
       long percentage = duration() * 100 / top.duration();
@@ -158,12 +242,30 @@ public class Timing {
   }
 
   public void report() {
-    Node top = stack.peek();
-    top.end();
+    Node top = endTop();
     System.out.println();
     top.report(0, top);
   }
 
+  public void reportAsJson(Path file) throws IOException {
+    JsonObject json = toJson();
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      new GsonBuilder().setPrettyPrinting().create().toJson(json, writer);
+    }
+  }
+
+  JsonObject toJson() {
+    return endTop().toJson();
+  }
+
+  private Node endTop() {
+    Node top = stack.peek();
+    if (top.isRunning()) {
+      top.end();
+    }
+    return top;
+  }
+
   public void scope(String title, TimingScope fn) {
     begin(title);
     try {
@@ -177,6 +279,113 @@ public class Timing {
     void apply();
   }
 
+  /**
+   * Returns an executor service that runs the tasks on the given executor service, and accounts the
+   * CPU time and allocated bytes of each task to the active phases when thread resources are
+   * tracked. Returns the given executor service otherwise.
+   */
+  public ExecutorService trackThreadResources(ExecutorService executorService) {
+    return trackThreadResources ? new TrackingExecutorService(executorService) : executorService;
+  }
+
+  private class TrackingExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService executorService;
+
+    TrackingExecutorService(ExecutorService executorService) {
+      this.executorService = executorService;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      executorService.execute(
+          () -> {
+            long startCpuTime = ThreadResources.currentThreadCpuTime();
+            long startAllocatedBytes = ThreadResources.currentThreadAllocatedBytes();
+            try {
+              command.run();
+            } finally {
+              taskCpuTime.addAndGet(ThreadResources.currentThreadCpuTime() - startCpuTime);
+              taskAllocatedBytes.addAndGet(
+                  ThreadResources.currentThreadAllocatedBytes() - startAllocatedBytes);
+            }
+          });
+    }
+
+    @Override
+    public void shutdown() {
+      executorService.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return executorService.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return executorService.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return executorService.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return executorService.awaitTermination(timeout, unit);
+    }
+  }
+
+  // Resources used by the current thread, or zero if the JVM does not support measuring them. The
+  // allocated bytes are only available through com.sun.management.ThreadMXBean, which is looked up
+  // reflectively, since it is not present on all JVMs.
+  static class ThreadResources {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuTimeSupported =
+        threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    private static final Method getThreadAllocatedBytes = lookupGetThreadAllocatedBytes();
+
+    private static Method lookupGetThreadAllocatedBytes() {
+      try {
+        Class<?> extendedThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+        if (!extendedThreadMXBean.isInstance(threadMXBean)) {
+          return null;
+        }
+        Method isSupported = extendedThreadMXBean.getMethod("isThreadAllocatedMemorySupported");
+        Method isEnabled = extendedThreadMXBean.getMethod("isThreadAllocatedMemoryEnabled");
+        if (!(Boolean) isSupported.invoke(threadMXBean)
+            || !(Boolean) isEnabled.invoke(threadMXBean)) {
+          return null;
+        }
+        return extendedThreadMXBean.getMethod("getThreadAllocatedBytes", long.class);
+      } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+        return null;
+      }
+    }
+
+    static boolean isAllocatedBytesSupported() {
+      return getThreadAllocatedBytes != null;
+    }
+
+    static long currentThreadCpuTime() {
+      return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    static long currentThreadAllocatedBytes() {
+      if (getThreadAllocatedBytes == null) {
+        return 0;
+      }
+      try {
+        return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+      } catch (ReflectiveOperationException e) {
+        return 0;
+      }
+    }
+  }
+
   private List<String> computeMemoryInformation() {
     List<String> strings = new ArrayList<>();
     strings.add(
@@ -0,0 +1,60 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.origin.Origin;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+public class D8SupertypePrefetchingTest {
+
+  static class Program implements Runnable {
+
+    @Override
+    public void run() {}
+  }
+
+  private static class RecordingLibraryProvider implements ClassFileResourceProvider {
+
+    private final Set<String> requestedDescriptors = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      return null;
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      requestedDescriptors.add(descriptor);
+      return null;
+    }
+  }
+
+  private Set<String> compile(boolean disableDesugaring) throws Exception {
+    RecordingLibraryProvider library = new RecordingLibraryProvider();
+    D8.run(
+        D8Command.builder()
+            .addClassProgramData(ToolHelper.getClassAsBytes(Program.class), Origin.unknown())
+            .addLibraryResourceProvider(library)
+            .setDisableDesugaring(disableDesugaring)
+            .setProgramConsumer(DexIndexedConsumer.emptyConsumer())
+            .build());
+    return library.requestedDescriptors;
+  }
+
+  @Test
+  public void supertypesArePrefetchedWhenDesugaring() throws Exception {
+    assertTrue(compile(false).containsAll(ImmutableSet.of("Ljava/lang/Runnable;")));
+  }
+
+  @Test
+  public void supertypesAreNotPrefetchedWithoutDesugaring() throws Exception {
+    assertEquals(ImmutableSet.of(), compile(true));
+  }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.utils.InternalOptions.OutlineOptions;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.CodeMatchers;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+
+// Outlines are only applied to the methods that have a site of a selected outline. The other
+// methods keep the code of the primary optimization pass.
+public class R8OutliningReprocessingTest extends TestBase {
+
+  static class TestClass {
+
+    public static String foo(String arg) {
+      return new StringBuilder().append("foo").append(arg).append("baz").toString();
+    }
+
+    public static String bar(String arg) {
+      return new StringBuilder().append("foo").append(arg).append("baz").toString();
+    }
+
+    public static int baz(int arg) {
+      return arg * 31;
+    }
+  }
+
+  private CodeInspector compile(boolean enableOutlining) throws Exception {
+    return testForR8(Backend.DEX)
+        .addProgramClassFileData(ToolHelper.getClassAsBytes(TestClass.class))
+        .addKeepRules("-keep class " + TestClass.class.getTypeName() + " { *; }")
+        .addOptionsModification(
+            options -> {
+              options.outline.enabled = enableOutlining;
+              options.outline.threshold = 2;
+            })
+        .compile()
+        .inspector();
+  }
+
+  private static DexCode getCode(CodeInspector inspector, String name) {
+    return inspector
+        .clazz(TestClass.class)
+        .uniqueMethodWithName(name)
+        .getMethod()
+        .getCode()
+        .asDexCode();
+  }
+
+  @Test
+  public void methodsWithoutOutlineSitesKeepTheirCode() throws Exception {
+    CodeInspector outlined = compile(true);
+    ClassSubject outlineClass = outlined.clazz(OutlineOptions.CLASS_NAME);
+    assertThat(outlineClass, isPresent());
+    MethodSubject outline = outlineClass.uniqueMethodWithName(OutlineOptions.METHOD_PREFIX + "0");
+    assertThat(outline, isPresent());
+    ClassSubject testClass = outlined.clazz(TestClass.class);
+    assertThat(testClass.uniqueMethodWithName("foo"), CodeMatchers.invokesMethod(outline));
+    assertThat(testClass.uniqueMethodWithName("bar"), CodeMatchers.invokesMethod(outline));
+    assertThat(testClass.uniqueMethodWithName("baz"), not(CodeMatchers.invokesMethod(outline)));
+
+    CodeInspector notOutlined = compile(false);
+    assertEquals(getCode(notOutlined, "baz"), getCode(outlined, "baz"));
+  }
+}
@@ -4,7 +4,9 @@
 
 package com.android.tools.r8.compatdexbuilder;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.CompilationFailedException;
@@ -16,12 +18,15 @@ import com.android.tools.r8.ToolHelper.ArtCommandBuilder;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.junit.Rule;
@@ -75,6 +80,64 @@ public class CompatDexBuilderTests {
     assertTrue(expectedNames.isEmpty());
   }
 
+  @Test
+  public void compileWithDexCache() throws IOException, InterruptedException, ExecutionException {
+    final String INPUT_JAR = ToolHelper.EXAMPLES_BUILD_DIR + "dexmergesample.jar";
+    Path cacheDir = temp.newFolder().toPath();
+    Path outputZip = temp.getRoot().toPath().resolve("out.zip");
+    Path cachedOutputZip = temp.getRoot().toPath().resolve("cached.zip");
+    String cacheFlag = "--dex-cache-dir=" + cacheDir;
+
+    CompatDexBuilder.main(
+        new String[] {"--input_jar", INPUT_JAR, "--output_zip", outputZip.toString(), cacheFlag});
+    assertEquals(2, countFiles(cacheDir));
+
+    // A second run only reads from the cache and must produce the same output.
+    CompatDexBuilder.main(
+        new String[] {
+          "--input_jar", INPUT_JAR, "--output_zip", cachedOutputZip.toString(), cacheFlag
+        });
+    assertArrayEquals(Files.readAllBytes(outputZip), Files.readAllBytes(cachedOutputZip));
+
+    // With a size limit that is smaller than any entry, everything is evicted.
+    CompatDexBuilder.main(
+        new String[] {
+          "--input_jar",
+          INPUT_JAR,
+          "--output_zip",
+          cachedOutputZip.toString(),
+          cacheFlag,
+          "--dex-cache-max-size=1"
+        });
+    assertArrayEquals(Files.readAllBytes(outputZip), Files.readAllBytes(cachedOutputZip));
+    assertEquals(0, countFiles(cacheDir));
+  }
+
+  @Test
+  public void dexCacheDeletesStaleTemporaryFiles() throws IOException {
+    Path cacheDir = temp.newFolder().toPath();
+    Path stale = cacheDir.resolve("stale.tmp");
+    Path fresh = cacheDir.resolve("fresh.tmp");
+    Files.write(stale, new byte[] {0});
+    Files.write(fresh, new byte[] {0});
+    Files.setLastModifiedTime(
+        stale,
+        FileTime.fromMillis(
+            System.currentTimeMillis() - 2 * DexCache.STALE_TEMPORARY_FILE_AGE_MILLIS));
+
+    // Opening the cache deletes the temporary file left behind by a crashed write, but not the one
+    // that may still be written by a concurrent process.
+    new DexCache(cacheDir, Long.MAX_VALUE);
+    assertFalse(Files.exists(stale));
+    assertTrue(Files.exists(fresh));
+  }
+
+  private static long countFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
   @Test
   public void compileTwoClassesAndRun()
       throws IOException, InterruptedException, ExecutionException, CompilationFailedException {
@@ -5,6 +5,8 @@
 package com.android.tools.r8.dex;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import com.android.tools.r8.graph.DexItemFactory;
 import com.android.tools.r8.graph.DexString;
@@ -26,6 +28,24 @@ public class DexStringTest {
     checkEncodedLength(factory.createString("\udbff\udfff"), 6);
   }
 
+  @Test
+  public void testCanonicalization() {
+    DexItemFactory factory = new DexItemFactory();
+    String[] sources = {
+      "", "\u0000", "a\u0000a", "\u007f", "\u0080", "a\u07ffa", "\u0800", "\uffff",
+      "a\ud800\udc00a", "Ljava/lang/Object;", "<init>"
+    };
+    for (String source : sources) {
+      DexString string =
+          factory.createString(source.length(), DexString.encodeToMutf8(source));
+      assertSame(string, factory.lookupString(source));
+      assertSame(string, factory.createString(source));
+      assertEquals(string.hashCode(), new DexItemFactory().createString(source).hashCode());
+    }
+    assertNull(factory.lookupString("\u0000a"));
+    assertNull(factory.lookupString("a\u07ff"));
+  }
+
   @Test
   public void testCompare() {
     DexItemFactory factory = new DexItemFactory();
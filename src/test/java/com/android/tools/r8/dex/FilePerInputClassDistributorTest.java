@@ -0,0 +1,115 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.desugar.LambdaRewriter;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+// Each output file of a per class file compilation must hold its primary class and the lambda
+// classes synthesized from it. The synthesized classes are deferred by the distributor and only
+// added to the file when it is written.
+public class FilePerInputClassDistributorTest extends TestBase {
+
+  private static class CollectingConsumer implements DexFilePerClassFileConsumer {
+
+    private final Map<String, Set<String>> descriptors = new HashMap<>();
+    private final Map<String, byte[]> data = new HashMap<>();
+
+    @Override
+    public synchronized void accept(
+        String primaryClassDescriptor,
+        ByteDataView data,
+        Set<String> descriptors,
+        DiagnosticsHandler handler) {
+      assertTrue(descriptors.contains(primaryClassDescriptor));
+      this.descriptors.put(primaryClassDescriptor, descriptors);
+      this.data.put(primaryClassDescriptor, data.copyByteData());
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {}
+  }
+
+  @Test
+  public void test() throws Exception {
+    // The number of lambda classes synthesized from each input class.
+    Map<Class<?>, Integer> inputs = ImmutableMap.of(A.class, 1, B.class, 2, C.class, 0);
+    CollectingConsumer consumer = new CollectingConsumer();
+    testForD8()
+        .addProgramClasses(inputs.keySet())
+        .setMinApi(AndroidApiLevel.B)
+        .setProgramConsumer(consumer)
+        .addOptionsModification(options -> options.numberOfThreads = 4)
+        .compile();
+
+    assertEquals(inputs.size(), consumer.descriptors.size());
+    for (Class<?> input : inputs.keySet()) {
+      String primaryDescriptor = DescriptorUtils.javaTypeToDescriptor(input.getTypeName());
+      Set<String> descriptors = consumer.descriptors.get(primaryDescriptor);
+      assertEquals(input.getTypeName(), inputs.get(input) + 1, descriptors.size());
+      // The lambda classes are named after the class they are synthesized from.
+      String name = input.getName().substring(input.getPackage().getName().length() + 1);
+      String lambdaPrefix = LambdaRewriter.LAMBDA_CLASS_NAME_PREFIX + name + "$";
+      for (String descriptor : descriptors) {
+        assertTrue(
+            descriptor, descriptor.equals(primaryDescriptor) || descriptor.contains(lambdaPrefix));
+      }
+
+      // The file holds exactly the classes it was reported with.
+      CodeInspector inspector =
+          new CodeInspector(
+              AndroidApp.builder()
+                  .addDexProgramData(consumer.data.get(primaryDescriptor), Origin.unknown())
+                  .build());
+      Set<String> classesInFile = new HashSet<>();
+      for (ClassSubject clazz : inspector.allClasses()) {
+        classesInFile.add(clazz.getFinalDescriptor());
+      }
+      assertEquals(descriptors, classesInFile);
+    }
+  }
+
+  static class A {
+
+    static String a(String x) {
+      Supplier<String> supplier = () -> "A" + x;
+      return supplier.get();
+    }
+  }
+
+  static class B {
+
+    static String b(String x, String y) {
+      Supplier<String> first = () -> "B" + x;
+      Supplier<String> second = () -> "B" + y;
+      return first.get() + second.get();
+    }
+  }
+
+  static class C {
+
+    static String c() {
+      return "C";
+    }
+  }
+}
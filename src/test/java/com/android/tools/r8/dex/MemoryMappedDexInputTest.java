@@ -0,0 +1,110 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.OutputMode;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class MemoryMappedDexInputTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  // Enough methods to make the dex file span several pages.
+  private static final int METHOD_COUNT = 500;
+
+  private Path compileDexFile() throws Exception {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "test/Methods", null, "java/lang/Object", null);
+    for (int i = 0; i < METHOD_COUNT; i++) {
+      MethodVisitor mv =
+          cw.visitMethod(
+              Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "method" + i, "()Ljava/lang/String;", null,
+              null);
+      mv.visitCode();
+      mv.visitLdcInsn("string" + i);
+      mv.visitInsn(Opcodes.ARETURN);
+      mv.visitMaxs(1, 0);
+      mv.visitEnd();
+    }
+    cw.visitEnd();
+    Path output = temp.newFolder().toPath();
+    D8.run(
+        D8Command.builder()
+            .addClassProgramData(cw.toByteArray(), Origin.unknown())
+            .setDisableDesugaring(true)
+            .setOutput(output, OutputMode.DexIndexed)
+            .build());
+    return output.resolve("classes.dex");
+  }
+
+  private List<String> readMethods(Path dexFile, boolean memoryMapped) throws Exception {
+    InternalOptions options = new InternalOptions();
+    options.enableMemoryMappedDexInput = memoryMapped;
+    DexApplication application =
+        new ApplicationReader(
+                AndroidApp.builder().addProgramFiles(dexFile).build(), options, new Timing("test"))
+            .read();
+    List<String> methods = new ArrayList<>();
+    for (DexProgramClass clazz : application.classes()) {
+      clazz.forEachMethod(method -> methods.add(method.toSourceString()));
+    }
+    return methods;
+  }
+
+  @Test
+  public void memoryMappedInputIsReadLikeHeapInput() throws Exception {
+    Path dexFile = compileDexFile();
+    List<String> methods = readMethods(dexFile, true);
+    assertEquals(METHOD_COUNT, methods.size());
+    assertEquals(readMethods(dexFile, false), methods);
+  }
+
+  @Test
+  public void truncatedMemoryMappedInputIsReportedForTheFile() throws Exception {
+    // A mapped file cannot be truncated on Windows.
+    Assume.assumeFalse(System.getProperty("os.name", "").startsWith("Windows"));
+    Path dexFile = compileDexFile();
+    DexReader dexReader = new DexReader(ProgramResource.fromFile(Kind.DEX, dexFile), true);
+    // Keep the header, but drop the pages with the map and the data sections.
+    try (FileChannel channel = FileChannel.open(dexFile, StandardOpenOption.WRITE)) {
+      assertTrue(channel.size() > 2 * 4096);
+      channel.truncate(Constants.TYPE_HEADER_ITEM_SIZE);
+    }
+    try {
+      new DexParser(dexReader, ClassKind.PROGRAM, new InternalOptions()).populateIndexTables();
+      fail("Expected the truncated input to be reported");
+    } catch (CompilationError e) {
+      assertTrue(e.getCause() instanceof InternalError);
+      assertEquals(new PathOrigin(dexFile), e.toStringDiagnostic().getOrigin());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.google.common.io.ByteStreams;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+// The indexed items of the classes are collected in parallel before the classes are placed in the
+// dex files, unless the compilation uses a single thread. Both must give the same files.
+public class PackageSplitPopulatorTest extends TestBase {
+
+  private static final int PACKAGES = 5;
+  private static final int CLASSES_PER_PACKAGE = 20;
+  // The methods of four packages fit in a single dex file, so the classes of the last package are
+  // rolled back when the file overflows, and placed in a new file.
+  private static final int METHODS_PER_CLASS = 800;
+
+  private static String className(int packageIndex, int classIndex) {
+    return "com/example/app/p" + packageIndex + "/Class" + classIndex;
+  }
+
+  private static byte[] createClass(String name) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    for (int i = 0; i < METHODS_PER_CLASS; i++) {
+      MethodVisitor mv =
+          cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m" + i, "()V", null, null);
+      mv.visitCode();
+      mv.visitInsn(Opcodes.RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private List<byte[]> compile(List<byte[]> classes, int threads) throws Exception {
+    AndroidApp app =
+        testForD8()
+            .addProgramClassFileData(classes)
+            .setMinApi(AndroidApiLevel.L)
+            .addOptionsModification(options -> options.numberOfThreads = threads)
+            .compile()
+            .app;
+    List<byte[]> files = new ArrayList<>();
+    for (ProgramResource resource : app.getDexProgramResourcesForTesting()) {
+      try (InputStream stream = resource.getByteStream()) {
+        files.add(ByteStreams.toByteArray(stream));
+      }
+    }
+    return files;
+  }
+
+  @Test
+  public void test() throws Exception {
+    List<byte[]> classes = new ArrayList<>();
+    for (int packageIndex = 0; packageIndex < PACKAGES; packageIndex++) {
+      for (int classIndex = 0; classIndex < CLASSES_PER_PACKAGE; classIndex++) {
+        classes.add(createClass(className(packageIndex, classIndex)));
+      }
+    }
+    List<byte[]> serial = compile(classes, 1);
+    List<byte[]> parallel = compile(classes, 4);
+
+    // The files are written in the same order and with the same content.
+    assertEquals(serial.size(), parallel.size());
+    for (int i = 0; i < serial.size(); i++) {
+      assertArrayEquals(serial.get(i), parallel.get(i));
+    }
+
+    // The last package did not fit in the first file.
+    assertEquals(2, parallel.size());
+    Map<String, Integer> fileOfClass = new HashMap<>();
+    for (int i = 0; i < parallel.size(); i++) {
+      CodeInspector inspector =
+          new CodeInspector(
+              AndroidApp.builder().addDexProgramData(parallel.get(i), Origin.unknown()).build());
+      for (ClassSubject clazz : inspector.allClasses()) {
+        assertTrue(fileOfClass.put(clazz.getFinalDescriptor(), i) == null);
+      }
+    }
+    assertEquals(classes.size(), fileOfClass.size());
+    for (int packageIndex = 0; packageIndex < PACKAGES; packageIndex++) {
+      int expectedFile = packageIndex < PACKAGES - 1 ? 0 : 1;
+      for (int classIndex = 0; classIndex < CLASSES_PER_PACKAGE; classIndex++) {
+        assertEquals(
+            className(packageIndex, classIndex),
+            expectedFile,
+            (int) fileOfClass.get("L" + className(packageIndex, classIndex) + ";"));
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+public class AppInfoWithSubtypingTest {
+
+  interface I {}
+
+  interface J extends I {}
+
+  static class A implements I {}
+
+  static class B extends A {}
+
+  static class C extends A implements J {}
+
+  static class D extends B {}
+
+  private static AppInfoWithSubtyping build(DexApplication application, boolean parallel)
+      throws Exception {
+    if (!parallel) {
+      return new AppInfoWithSubtyping(application);
+    }
+    ExecutorService executorService = ThreadUtils.getExecutorService(4);
+    try {
+      return new AppInfoWithSubtyping(application, executorService);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private static DexType type(InternalOptions options, String typeName) {
+    return options.itemFactory.createType(DescriptorUtils.javaTypeToDescriptor(typeName));
+  }
+
+  private static DexType type(InternalOptions options, Class<?> clazz) {
+    return type(options, clazz.getTypeName());
+  }
+
+  private void checkHierarchy(boolean parallel) throws Exception {
+    InternalOptions options = new InternalOptions();
+    AndroidApp.Builder builder =
+        AndroidApp.builder().addLibraryFiles(ToolHelper.getDefaultAndroidJar());
+    for (Class<?> clazz : ImmutableList.of(I.class, J.class, A.class, B.class, C.class, D.class)) {
+      builder.addProgramFiles(ToolHelper.getClassFileForTestClass(clazz));
+    }
+    DexApplication application =
+        new ApplicationReader(
+                builder.build(), options, new Timing(AppInfoWithSubtypingTest.class.getName()))
+            .read()
+            .toDirect();
+    AppInfoWithSubtyping appInfo = build(application, parallel);
+    DexType i = type(options, I.class);
+    DexType j = type(options, J.class);
+    DexType a = type(options, A.class);
+    DexType b = type(options, B.class);
+    DexType c = type(options, C.class);
+    DexType d = type(options, D.class);
+    DexType object = options.itemFactory.objectType;
+
+    assertTrue(appInfo.isMarkedAsInterface(i));
+    assertTrue(appInfo.isMarkedAsInterface(j));
+    assertFalse(appInfo.isMarkedAsInterface(a));
+    assertEquals(ImmutableList.of(a, j), ImmutableList.copyOf(appInfo.allImmediateSubtypes(i)));
+    assertEquals(ImmutableList.of(j), ImmutableList.copyOf(appInfo.allImmediateExtendsSubtypes(i)));
+    assertEquals(
+        ImmutableList.of(a), ImmutableList.copyOf(appInfo.allImmediateImplementsSubtypes(i)));
+    assertEquals(
+        ImmutableList.of(c), ImmutableList.copyOf(appInfo.allImmediateImplementsSubtypes(j)));
+    assertEquals(ImmutableList.of(b, c), ImmutableList.copyOf(appInfo.allImmediateSubtypes(a)));
+    assertEquals(ImmutableList.of(d), ImmutableList.copyOf(appInfo.allImmediateSubtypes(b)));
+    assertTrue(appInfo.allImmediateSubtypes(c).isEmpty());
+    assertTrue(appInfo.allImmediateSubtypes(object).contains(a));
+    assertEquals(ImmutableSet.of(b, c, d), appInfo.subtypes(a));
+    assertEquals(ImmutableSet.of(j, a, b, c, d), appInfo.subtypes(i));
+    // The levels of the classes are checked through the least upper bound, which first walks the
+    // deeper class up to the level of the other class.
+    assertEquals(a, appInfo.computeLeastUpperBoundOfClasses(d, c));
+    assertEquals(b, appInfo.computeLeastUpperBoundOfClasses(d, b));
+    assertEquals(object, appInfo.computeLeastUpperBoundOfClasses(d, object));
+
+    // A type registered late is inserted in order and gets a class level. It has no definition, so
+    // it cannot be walked by the subtype and least upper bound computations.
+    DexType late = type(options, B.class.getTypeName() + "Late");
+    appInfo.registerNewType(late, a);
+    appInfo.registerNewType(late, a);
+    assertEquals(
+        ImmutableList.of(b, late, c), ImmutableList.copyOf(appInfo.allImmediateSubtypes(a)));
+    assertTrue(appInfo.isDirectSubtype(late, a));
+    assertFalse(appInfo.isUnknown(late));
+    assertFalse(appInfo.isMarkedAsInterface(late));
+    assertTrue(appInfo.allImmediateSubtypes(late).isEmpty());
+
+    // A type registered late below a leaf type, and below another type registered late.
+    DexType lateLeaf = type(options, C.class.getTypeName() + "Late");
+    appInfo.registerNewType(lateLeaf, c);
+    assertEquals(
+        ImmutableList.of(lateLeaf), ImmutableList.copyOf(appInfo.allImmediateSubtypes(c)));
+    DexType lateOfLate = type(options, B.class.getTypeName() + "LateLate");
+    appInfo.registerNewType(lateOfLate, late);
+    assertEquals(
+        ImmutableList.of(lateOfLate), ImmutableList.copyOf(appInfo.allImmediateSubtypes(late)));
+    assertFalse(appInfo.isUnknown(lateOfLate));
+    assertFalse(appInfo.isMarkedAsInterface(lateOfLate));
+
+    // A type registered late below Object keeps the direct subtypes of Object sorted.
+    Set<DexType> objectSubtypes = appInfo.allImmediateSubtypes(object);
+    DexType lateObjectSubtype = type(options, A.class.getTypeName() + "Late");
+    appInfo.registerNewType(lateObjectSubtype, object);
+    ImmutableList<DexType> newObjectSubtypes =
+        ImmutableList.copyOf(appInfo.allImmediateSubtypes(object));
+    assertEquals(objectSubtypes.size() + 1, newObjectSubtypes.size());
+    assertTrue(newObjectSubtypes.containsAll(objectSubtypes));
+    assertTrue(newObjectSubtypes.contains(lateObjectSubtype));
+    for (int index = 1; index < newObjectSubtypes.size(); index++) {
+      assertTrue(
+          newObjectSubtypes.get(index - 1).slowCompareTo(newObjectSubtypes.get(index)) < 0);
+    }
+    assertEquals(object, appInfo.computeLeastUpperBoundOfClasses(lateObjectSubtype, a));
+  }
+
+  @Test
+  public void serialConstructionBuildsHierarchy() throws Exception {
+    checkHierarchy(false);
+  }
+
+  @Test
+  public void parallelConstructionBuildsHierarchy() throws Exception {
+    checkHierarchy(true);
+  }
+
+  @Test
+  public void parallelConstructionMatchesSerialConstruction() throws Exception {
+    InternalOptions options = new InternalOptions();
+    DexApplication application =
+        new ApplicationReader(
+                AndroidApp.builder()
+                    .addLibraryFiles(ToolHelper.getDefaultAndroidJar())
+                    .addLibraryFiles(ToolHelper.getKotlinStdlibJar())
+                    .build(),
+                options,
+                new Timing(AppInfoWithSubtypingTest.class.getName()))
+            .read()
+            .toDirect();
+    AppInfoWithSubtyping serial = build(application, false);
+    AppInfoWithSubtyping parallel = build(application, true);
+    for (DexClass clazz : application.asDirect().allClasses()) {
+      DexType type = clazz.type;
+      assertEquals(
+          ImmutableList.copyOf(serial.subtypes(type)),
+          ImmutableList.copyOf(parallel.subtypes(type)));
+      assertEquals(
+          ImmutableList.copyOf(serial.allImmediateSubtypes(type)),
+          ImmutableList.copyOf(parallel.allImmediateSubtypes(type)));
+      assertEquals(serial.isMarkedAsInterface(type), parallel.isMarkedAsInterface(type));
+    }
+    assertEquals(serial.getMissingClasses(), parallel.getMissingClasses());
+  }
+}
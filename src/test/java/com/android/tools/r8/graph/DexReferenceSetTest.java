@@ -0,0 +1,131 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class DexReferenceSetTest {
+
+  private final DexItemFactory factory = new DexItemFactory();
+
+  @Test
+  public void idsAreDistinctAcrossKinds() {
+    DexType type = factory.createType("LA;");
+    DexField field = factory.createField(type, factory.intType, "f");
+    DexMethod method = factory.createMethod(type, factory.createProto(factory.voidType), "m");
+    assertTrue(type.getId() >= 0);
+    assertNotEquals(type.getId(), field.getId());
+    assertNotEquals(type.getId(), method.getId());
+    assertNotEquals(field.getId(), method.getId());
+    assertEquals(field.getId(), factory.createField(type, factory.intType, "f").getId());
+  }
+
+  @Test
+  public void iteratesInInsertionOrder() {
+    DexType a = factory.createType("LA;");
+    DexType b = factory.createType("LB;");
+    DexType c = factory.createType("LC;");
+    DexReferenceSet<DexType> set = new DexReferenceSet<>();
+    assertTrue(set.add(c));
+    assertTrue(set.add(a));
+    assertFalse(set.add(c));
+    assertTrue(set.add(b));
+    assertEquals(ImmutableList.of(c, a, b), ImmutableList.copyOf(set));
+
+    assertTrue(set.remove(c));
+    assertFalse(set.remove(c));
+    assertFalse(set.contains(c));
+    assertEquals(2, set.size());
+    assertTrue(set.add(c));
+    assertEquals(ImmutableList.of(a, b, c), ImmutableList.copyOf(set));
+
+    Iterator<DexType> iterator = set.iterator();
+    iterator.next();
+    iterator.remove();
+    assertFalse(set.contains(a));
+    assertEquals(ImmutableList.of(b, c), ImmutableList.copyOf(set));
+  }
+
+  private List<DexType> createTypes(int count) {
+    List<DexType> types = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      types.add(factory.createType("LT" + i + ";"));
+    }
+    return types;
+  }
+
+  @Test
+  public void removedItemsAreAddedLastWhenAddedAgain() {
+    List<DexType> types = createTypes(10);
+    DexReferenceSet<DexType> set = new DexReferenceSet<>();
+    set.addAll(types);
+    // Removing most of the items compacts the set.
+    for (int i = 0; i < 8; i++) {
+      assertTrue(set.remove(types.get(i)));
+    }
+    assertEquals(ImmutableList.of(types.get(8), types.get(9)), ImmutableList.copyOf(set));
+    assertTrue(set.add(types.get(3)));
+    assertTrue(set.add(types.get(0)));
+    assertFalse(set.add(types.get(9)));
+    assertTrue(set.remove(types.get(8)));
+    assertEquals(3, set.size());
+    assertEquals(
+        ImmutableList.of(types.get(9), types.get(3), types.get(0)), ImmutableList.copyOf(set));
+  }
+
+  @Test
+  public void concurrentIterationAfterRemoval() throws Exception {
+    List<DexType> types = createTypes(1000);
+    DexReferenceSet<DexType> set = new DexReferenceSet<>();
+    set.addAll(types);
+    List<DexType> expected = new ArrayList<>();
+    for (int i = 0; i < types.size(); i++) {
+      if (i % 3 == 0) {
+        assertTrue(set.remove(types.get(i)));
+      } else {
+        expected.add(types.get(i));
+      }
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(
+            executorService.submit(
+                () -> assertEquals(expected, ImmutableList.copyOf(set.iterator()))));
+      }
+      ThreadUtils.awaitFutures(futures);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void referencesWithoutIdAreRejected() {
+    DexReferenceSet<DexType> set = new DexReferenceSet<>();
+    assertFalse(set.contains(DexItemFactory.nullValueType));
+    assertFalse(set.remove(DexItemFactory.nullValueType));
+    try {
+      set.add(DexItemFactory.nullValueType);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+    assertTrue(set.isEmpty());
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.android.tools.r8.graph.DexAnnotationSet;
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.LazyDexCode;
+import com.android.tools.r8.graph.MethodAccessFlags;
+import com.android.tools.r8.graph.ParameterAnnotationsList;
+import com.android.tools.r8.ir.conversion.CallGraph.Node;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class MethodProcessorTest {
+
+  private final DexItemFactory factory = new DexItemFactory();
+  private final DexType holder = factory.createType("LA;");
+
+  private DexEncodedMethod createMethod(String name, int numberOfNops) {
+    LazyDexCode code =
+        new LazyDexCode(
+            0, 0, 0, new short[numberOfNops], new Try[0], new TryHandler[0], null, null);
+    return new DexEncodedMethod(
+        factory.createMethod(holder, factory.createProto(factory.voidType), name),
+        MethodAccessFlags.fromSharedAccessFlags(0, false),
+        DexAnnotationSet.empty(),
+        ParameterAnnotationsList.empty(),
+        code);
+  }
+
+  @Test
+  public void waveStartsWithTheMostExpensiveMethods() {
+    DexEncodedMethod small = createMethod("small", 1);
+    DexEncodedMethod large = createMethod("large", 100);
+    DexEncodedMethod medium = createMethod("medium", 10);
+    DexEncodedMethod abstractMethod =
+        new DexEncodedMethod(
+            factory.createMethod(holder, factory.createProto(factory.voidType), "abstract"),
+            MethodAccessFlags.fromSharedAccessFlags(0, false),
+            DexAnnotationSet.empty(),
+            ParameterAnnotationsList.empty(),
+            null);
+    List<Node> leaves = new ArrayList<>();
+    for (DexEncodedMethod method : ImmutableList.of(small, abstractMethod, large, medium)) {
+      leaves.add(new Node(method));
+    }
+    assertEquals(
+        ImmutableList.of(large, medium, small, abstractMethod),
+        ImmutableList.copyOf(MethodProcessor.createWave(leaves)));
+    // Ordering the wave must not decode the instructions of lazily read code.
+    for (DexEncodedMethod method : ImmutableList.of(small, large, medium)) {
+      assertFalse(method.getCode().asLazyDexCode().isParsed());
+    }
+  }
+}
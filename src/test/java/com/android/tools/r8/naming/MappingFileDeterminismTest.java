@@ -0,0 +1,105 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+// The line numbers of the classes are remapped in parallel. The mapping file must not depend on the
+// order in which the classes are processed.
+@RunWith(Parameterized.class)
+public class MappingFileDeterminismTest extends TestBase {
+
+  private static final int RUNS = 5;
+
+  private final Backend backend;
+
+  @Parameterized.Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return ToolHelper.getBackends();
+  }
+
+  public MappingFileDeterminismTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private String compile(int threads) throws Exception {
+    return testForR8(backend)
+        .addInnerClasses(MappingFileDeterminismTest.class)
+        .addKeepMainRule(Main.class)
+        .addKeepRules(
+            "-keep,allowobfuscation class " + A.class.getTypeName() + " { *; }",
+            "-keep,allowobfuscation class " + B.class.getTypeName() + " { *; }",
+            "-keep,allowobfuscation class " + C.class.getTypeName() + " { *; }",
+            "-keep,allowobfuscation class " + D.class.getTypeName() + " { *; }")
+        .addOptionsModification(options -> options.numberOfThreads = threads)
+        .compile()
+        .getProguardMap();
+  }
+
+  @Test
+  public void test() throws Exception {
+    String expected = compile(1);
+    assertTrue(expected.contains(A.class.getTypeName() + " -> "));
+    for (int i = 0; i < RUNS; i++) {
+      assertEquals(expected, compile(4));
+    }
+  }
+
+  static class A {
+
+    int field;
+
+    int a(int x) {
+      return x + 1;
+    }
+
+    int b(int x) {
+      return a(x) * 2;
+    }
+  }
+
+  static class B extends A {
+
+    @Override
+    int a(int x) {
+      return x - 1;
+    }
+
+    int c(int x) {
+      return b(x) + a(x);
+    }
+  }
+
+  static class C {
+
+    static String d(A a) {
+      return "C" + a.b(1);
+    }
+
+    static String e(B b) {
+      return d(b) + b.c(2);
+    }
+  }
+
+  static class D {
+
+    static String f() {
+      return C.e(new B()) + C.d(new A());
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println(D.f());
+    }
+  }
+}
@@ -532,6 +532,14 @@ public class MinifierClassSignatureTest extends TestBase {
         "Outer$ExtendsInner", "X",
         "Outer$Inner$ExtendsInnerInner", "X"), diagnostics -> {
       assertEquals(3, diagnostics.warnings.size());
+      // Warnings are reported in class order, independent of how the classes are processed.
+      DiagnosticsChecker.checkDiagnostic(diagnostics.warnings.get(0), this::isOriginUnknown,
+          "Invalid signature 'X' for class Outer", "Expected L at position 1");
+      DiagnosticsChecker.checkDiagnostic(diagnostics.warnings.get(1), this::isOriginUnknown,
+          "Invalid signature 'X' for class Outer$ExtendsInner", "Expected L at position 1");
+      DiagnosticsChecker.checkDiagnostic(diagnostics.warnings.get(2), this::isOriginUnknown,
+          "Invalid signature 'X' for class Outer$Inner$ExtendsInnerInner",
+          "Expected L at position 1");
     }, inspector -> {
       noSignatureAttribute(inspector.clazz("Outer"));
       noSignatureAttribute(inspector.clazz("Outer$ExtendsInner"));
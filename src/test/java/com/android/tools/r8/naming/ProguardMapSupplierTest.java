@@ -0,0 +1,160 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.naming.ProguardMapSupplier.ProguardMapId;
+import com.android.tools.r8.naming.ProguardMapSupplier.ProguardMapIdHasher;
+import com.android.tools.r8.naming.ProguardMapSupplier.StringConsumerWriter;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ProguardMapSupplierTest {
+
+  private static final String SURROGATE_PAIR = "\uD83D\uDE00";
+
+  private static class CollectingConsumer implements StringConsumer {
+
+    private final List<String> chunks = new ArrayList<>();
+    private boolean finished = false;
+
+    @Override
+    public void accept(String string, DiagnosticsHandler handler) {
+      assertFalse(finished);
+      chunks.add(string);
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      finished = true;
+    }
+
+    String getContent() {
+      assertTrue(finished);
+      return String.join("", chunks);
+    }
+  }
+
+  // The pg_map_id as it was computed from the map body held in a single string.
+  private static String computeIdOfBody(String body) {
+    if (body.trim().length() == 0) {
+      return null;
+    }
+    Hasher hasher = Hashing.murmur3_32().newHasher();
+    body.codePoints().filter(c -> !Character.isWhitespace(c)).forEach(hasher::putInt);
+    return hasher.hash().toString().substring(0, ProguardMapSupplier.PG_MAP_ID_LENGTH);
+  }
+
+  private static String computeIdWithHasher(String body, int split) {
+    ProguardMapIdHasher hasher = new ProguardMapIdHasher();
+    hasher.write(body, 0, split);
+    hasher.write(body.toCharArray(), split, body.length() - split);
+    if (hasher.isEmpty()) {
+      return null;
+    }
+    return hasher.hash().substring(0, ProguardMapSupplier.PG_MAP_ID_LENGTH);
+  }
+
+  // A map of more than one chunk, where the original name of the last class has a surrogate pair.
+  private static ClassNameMapper createLargeMapper() throws Exception {
+    StringBuilder map = new StringBuilder();
+    for (int i = 0; i < 4000; i++) {
+      map.append("com.example.SomeClass").append(i).append(" -> a").append(i).append(":\n");
+      map.append("    int someField -> a\n");
+    }
+    map.append("com.example.Z").append(SURROGATE_PAIR).append(" -> b:\n");
+    ClassNameMapper mapper = ClassNameMapper.mapperFromString(map.toString());
+    assertTrue(mapper.toString().length() > 2 * StringConsumerWriter.CHUNK_SIZE);
+    return mapper;
+  }
+
+  @Test
+  public void hasherComputesTheIdOfTheBody() {
+    List<String> bodies =
+        ImmutableList.of(
+            "a -> b:\n    int f -> a\n",
+            " a\tb\r\nc ",
+            "\u2003",
+            "x" + SURROGATE_PAIR + "y",
+            SURROGATE_PAIR,
+            "a\uD83D",
+            "\uDE00b",
+            "\uD83Da",
+            "",
+            " \n\t ",
+            "\u0001");
+    for (String body : bodies) {
+      for (int split = 0; split <= body.length(); split++) {
+        assertEquals(body, computeIdOfBody(body), computeIdWithHasher(body, split));
+      }
+    }
+  }
+
+  @Test
+  public void idOfMapIsTheIdOfTheBody() throws Exception {
+    ClassNameMapper mapper = createLargeMapper();
+    ProguardMapId id =
+        ProguardMapSupplier.fromClassNameMapper(mapper, new InternalOptions()).getProguardMapId();
+    assertEquals(computeIdOfBody(mapper.toString()), id.id);
+  }
+
+  @Test
+  public void emptyMapHasNoId() throws Exception {
+    ClassNameMapper mapper = ClassNameMapper.mapperFromString("");
+    assertNull(
+        ProguardMapSupplier.fromClassNameMapper(mapper, new InternalOptions()).getProguardMapId());
+  }
+
+  @Test
+  public void chunkedMapIsTheWholeMap() throws Exception {
+    ClassNameMapper mapper = createLargeMapper();
+    ProguardMapSupplier supplier =
+        ProguardMapSupplier.fromClassNameMapper(mapper, new InternalOptions());
+    ProguardMapId id = supplier.getProguardMapId();
+    CollectingConsumer consumer = new CollectingConsumer();
+    supplier.writeProguardMap(id, consumer, new Reporter());
+    assertTrue(consumer.chunks.size() > 2);
+
+    // The concatenated chunks are the header followed by the body.
+    StringWriter writer = new StringWriter();
+    supplier.writeProguardMap(id, writer);
+    String content = consumer.getContent();
+    assertEquals(writer.toString(), content);
+    String header = "# pg_map_id: " + id.id + "\n# common_typos_disable\n";
+    assertEquals(
+        content.substring(0, content.indexOf(header) + header.length()) + mapper.toString(),
+        content);
+  }
+
+  @Test
+  public void surrogatePairIsNotSplitAcrossChunks() {
+    String content =
+        Strings.repeat("a", StringConsumerWriter.CHUNK_SIZE - 1) + SURROGATE_PAIR + "b";
+    // The pair straddles the chunk boundary, and is written by two separate writes.
+    int split = StringConsumerWriter.CHUNK_SIZE;
+    CollectingConsumer consumer = new CollectingConsumer();
+    StringConsumerWriter writer = new StringConsumerWriter(consumer, new Reporter());
+    writer.write(content, 0, split);
+    writer.write(content.toCharArray(), split, content.length() - split);
+    writer.close();
+    consumer.finished(null);
+    assertEquals(2, consumer.chunks.size());
+    assertEquals(StringConsumerWriter.CHUNK_SIZE - 1, consumer.chunks.get(0).length());
+    assertEquals(content, consumer.getContent());
+  }
+}
@@ -8,9 +8,11 @@ import static com.android.tools.r8.ToolHelper.LINE_SEPARATOR;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.ToolHelper;
 import com.android.tools.r8.ToolHelper.ProcessResult;
+import com.android.tools.r8.retrace.stacktraces.InlineWithLineNumbersStackTrace;
 import com.android.tools.r8.utils.StringUtils;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -71,6 +73,30 @@ public class RetraceCommandLineTests {
     assertEquals(Retrace.USAGE_MESSAGE, processResult.stdout);
   }
 
+  @Test
+  public void testIndex() throws IOException {
+    InlineWithLineNumbersStackTrace stackTrace = new InlineWithLineNumbersStackTrace();
+    Path mappingFile = folder.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, stackTrace.mapping().getBytes());
+    Path stackTraceFile = folder.newFile("stacktrace.txt").toPath();
+    Files.write(stackTraceFile, stackTrace.obfuscatedStackTrace());
+    Path indexFile = folder.getRoot().toPath().resolve("mapping.index");
+    String expected = StringUtils.lines(stackTrace.retracedStackTrace());
+    // The first run creates the index, and the second run reads it.
+    for (int i = 0; i < 2; i++) {
+      ProcessResult result =
+          runRetraceCommandLine(
+              null,
+              "--index",
+              indexFile.toString(),
+              mappingFile.toString(),
+              stackTraceFile.toString());
+      assertEquals(0, result.exitCode);
+      assertEquals(expected, result.stdout);
+      assertTrue(Files.exists(indexFile));
+    }
+  }
+
   private final String nonMappableStackTrace =
       StringUtils.lines(
           "com.android.r8.R8Exception: Problem when compiling program",
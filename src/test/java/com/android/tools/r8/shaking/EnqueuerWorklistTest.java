@@ -0,0 +1,100 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class EnqueuerWorklistTest {
+
+  static class A {
+
+    void a1() {}
+
+    void a2() {}
+  }
+
+  static class B {
+
+    void b() {}
+  }
+
+  private final List<DexProgramClass> classes = new ArrayList<>();
+  private final List<DexEncodedMethod> methods = new ArrayList<>();
+
+  private static void enqueueMarkMethodLiveActions(
+      EnqueuerWorklist worklist, DexProgramClass clazz) {
+    for (DexEncodedMethod method : clazz.virtualMethods()) {
+      worklist.enqueueMarkMethodLiveAction(
+          clazz, method, KeepReason.reachableFromLiveType(clazz.type));
+    }
+  }
+
+  private EnqueuerWorklist createWorklistWithPendingLiveMethods() throws Exception {
+    InternalOptions options = new InternalOptions();
+    AndroidApp app =
+        AndroidApp.builder()
+            .addClassProgramData(ToolHelper.getClassAsBytes(A.class), Origin.unknown())
+            .addClassProgramData(ToolHelper.getClassAsBytes(B.class), Origin.unknown())
+            .build();
+    DexApplication application = new ApplicationReader(app, options, new Timing()).read();
+    EnqueuerWorklist worklist =
+        EnqueuerWorklist.createWorklist(AppView.createForR8(new AppInfo(application), options));
+    for (DexProgramClass clazz : application.classes()) {
+      enqueueMarkMethodLiveActions(worklist, clazz);
+      classes.add(clazz);
+      methods.addAll(clazz.virtualMethods());
+    }
+    assertEquals(3, methods.size());
+    return worklist;
+  }
+
+  @Test
+  public void pendingUnparsedMethodsAreTakenOnce() throws Exception {
+    EnqueuerWorklist worklist = createWorklistWithPendingLiveMethods();
+    assertEquals(methods, worklist.takePendingUnparsedMethods());
+    assertEquals(ImmutableList.of(), worklist.takePendingUnparsedMethods());
+  }
+
+  @Test
+  public void parsedMethodsAreNotPending() throws Exception {
+    EnqueuerWorklist worklist = createWorklistWithPendingLiveMethods();
+    worklist.takePendingUnparsedMethods();
+    for (DexEncodedMethod method : methods) {
+      method.getCode().asCfCode();
+      assertFalse(EnqueuerWorklist.hasUnparsedCode(method));
+    }
+    for (DexProgramClass clazz : classes) {
+      enqueueMarkMethodLiveActions(worklist, clazz);
+    }
+    assertEquals(ImmutableList.of(), worklist.takePendingUnparsedMethods());
+  }
+
+  @Test
+  public void transferKeepsPendingUnparsedMethodsOfRetainedActions() throws Exception {
+    EnqueuerWorklist worklist = createWorklistWithPendingLiveMethods();
+    EnqueuerWorklist target = EnqueuerWorklist.createWorklist(null);
+    DexEncodedMethod removed = methods.get(1);
+    worklist.transferTo(target, (method, reason) -> method != removed);
+    assertEquals(ImmutableList.of(), worklist.takePendingUnparsedMethods());
+    assertEquals(
+        ImmutableList.of(methods.get(0), methods.get(2)), target.takePendingUnparsedMethods());
+  }
+}
@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.shaking;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -53,6 +54,19 @@ public class ProguardNameMatchingTest {
         .matches(dexItemFactory.createType(DescriptorUtils.javaTypeToDescriptor(className)));
   }
 
+  private static List<String> classNamePrefixes(String... patterns) {
+    ProguardClassNameList.Builder listBuilder = ProguardClassNameList.builder();
+    for (String pattern : patterns) {
+      boolean isNegated = pattern.startsWith("!");
+      String actualPattern = isNegated ? pattern.substring(1) : pattern;
+      listBuilder.addClassName(isNegated,
+          ProguardTypeMatcher.create(
+              toIdentifierPatternWithWildCards(actualPattern, false),
+              ClassOrType.CLASS, dexItemFactory));
+    }
+    return listBuilder.build().getClassNamePrefixes();
+  }
+
   private static boolean matchMemberName(String pattern, String memberName) {
     ProguardNameMatcher nameMatcher =
         ProguardNameMatcher.create(toIdentifierPatternWithWildCards(pattern, true));
@@ -110,6 +124,50 @@ public class ProguardNameMatchingTest {
         ImmutableList.of(ImmutableList.of("!boo*,*foo"), ImmutableList.of("boofoo"))));
   }
 
+  @Test
+  public void classNamePrefixes() {
+    assertEquals(ImmutableList.of("java.lang.Object"), classNamePrefixes("java.lang.Object"));
+    assertEquals(ImmutableList.of("java.lang."), classNamePrefixes("java.lang.*"));
+    assertEquals(ImmutableList.of("ja"), classNamePrefixes("ja**ject"));
+    assertEquals(ImmutableList.of("java."), classNamePrefixes("java.?ang.Object"));
+    assertEquals(ImmutableList.of("j"), classNamePrefixes("j*v?.*<2>*g.Obj*"));
+    assertEquals(ImmutableList.of(""), classNamePrefixes("**"));
+    assertEquals(ImmutableList.of(""), classNamePrefixes("?ava.lang.Object"));
+    assertEquals(
+        ImmutableList.of("java.lang.", "java.util."),
+        classNamePrefixes("java.lang.*", "java.util.**"));
+    assertEquals(
+        ImmutableList.of("java.lang."), classNamePrefixes("!java.lang.Object", "java.lang.*"));
+  }
+
+  private static List<String> capturedByTypeMatch(String typeName, String pattern) {
+    ProguardTypeMatcher typeMatcher =
+        ProguardTypeMatcher.create(
+            toIdentifierPatternWithWildCards(pattern, false), ClassOrType.CLASS, dexItemFactory);
+    List<String> captured = new ArrayList<>();
+    if (typeMatcher.matches(
+        dexItemFactory.createType(DescriptorUtils.javaTypeToDescriptor(typeName)))) {
+      typeMatcher.getWildcards().forEach(wildcard -> captured.add(wildcard.getCaptured()));
+    }
+    return captured;
+  }
+
+  @Test
+  public void capturedWildcards() {
+    assertEquals(
+        ImmutableList.of("lang", "ject"), capturedByTypeMatch("java.lang.Object", "java.*.Ob*"));
+    assertEquals(
+        ImmutableList.of("java.lang", "Object"),
+        capturedByTypeMatch("java.lang.Object", "**.*"));
+    assertEquals(
+        ImmutableList.of("l", "ng.Ob", "e", "t"),
+        capturedByTypeMatch("java.lang.Object", "java.?a**j?c?"));
+    assertEquals(
+        ImmutableList.of("foo", "bar", "foo"), capturedByTypeMatch("foo.bar.foo", "*.*.<1>"));
+    assertEquals(ImmutableList.of(), capturedByTypeMatch("java.lang.Object", "java.*.Ob*z"));
+    assertEquals(ImmutableList.of(), capturedByTypeMatch("java.lang.Object", "javax.**"));
+  }
+
   private void assertMatchesBasicTypes(String pattern) {
     for (String type : BASIC_TYPES) {
       assertTrue(matchTypeName(type, pattern));
@@ -0,0 +1,45 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+public class PooledByteBufferProviderTest {
+
+  @Test
+  public void reusesReleasedBuffers() {
+    PooledByteBufferProvider provider = new PooledByteBufferProvider();
+    ByteBuffer buffer = provider.acquireByteBuffer(5000);
+    assertEquals(8192, buffer.capacity());
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(42);
+    provider.releaseByteBuffer(buffer);
+
+    ByteBuffer reused = provider.acquireByteBuffer(8000);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(ByteOrder.BIG_ENDIAN, reused.order());
+    assertEquals(0, reused.getInt(0));
+
+    // A buffer of a different size class is not reused.
+    assertNotSame(reused, provider.acquireByteBuffer(9000));
+  }
+
+  @Test
+  public void doesNotCacheBeyondLimit() {
+    PooledByteBufferProvider provider = new PooledByteBufferProvider(1);
+    ByteBuffer first = provider.acquireByteBuffer(100);
+    ByteBuffer second = provider.acquireByteBuffer(100);
+    provider.releaseByteBuffer(first);
+    provider.releaseByteBuffer(second);
+    assertSame(first, provider.acquireByteBuffer(100));
+    assertNotSame(second, provider.acquireByteBuffer(100));
+  }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TimingTest {
+
+  private static final int ALLOCATION_SIZE = 64 * 1024 * 1024;
+
+  private static long allocate() {
+    // Allocate in chunks, and use the chunks, such that the allocations are not optimized away.
+    List<byte[]> chunks = new ArrayList<>();
+    for (int i = 0; i < ALLOCATION_SIZE / (1024 * 1024); i++) {
+      chunks.add(new byte[1024 * 1024]);
+    }
+    long result = 0;
+    for (byte[] chunk : chunks) {
+      result += chunk.length;
+    }
+    return result;
+  }
+
+  private static long allocatedBytesOfPhase(Timing timing) {
+    JsonObject phase = timing.toJson().getAsJsonArray("children").get(0).getAsJsonObject();
+    assertEquals("phase", phase.get("title").getAsString());
+    return phase.get("allocatedBytes").getAsLong();
+  }
+
+  @Test
+  public void tasksOfTerminatedThreadsAreCounted() throws Exception {
+    assumeTrue(Timing.ThreadResources.isAllocatedBytesSupported());
+    Timing timing = new Timing("test", false, true);
+    timing.begin("phase");
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    ExecutorService trackingExecutorService = timing.trackThreadResources(executorService);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      futures.add(trackingExecutorService.submit(TimingTest::allocate));
+    }
+    ThreadUtils.awaitFutures(futures);
+    // The threads of the executor terminate before the phase ends.
+    executorService.shutdown();
+    assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+    timing.end();
+    assertTrue(allocatedBytesOfPhase(timing) >= 2L * ALLOCATION_SIZE);
+  }
+
+  @Test
+  public void otherThreadsAreNotCounted() throws Exception {
+    assumeTrue(Timing.ThreadResources.isAllocatedBytesSupported());
+    Timing timing = new Timing("test", false, true);
+    timing.begin("phase");
+    Thread thread = new Thread(TimingTest::allocate);
+    thread.start();
+    thread.join();
+    timing.end();
+    assertTrue(allocatedBytesOfPhase(timing) < ALLOCATION_SIZE);
+  }
+
+  @Test
+  public void executorServiceIsNotWrappedWithoutTracking() {
+    Timing timing = new Timing("test");
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      assertSame(executorService, timing.trackThreadResources(executorService));
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}